@@ -4,6 +4,16 @@ import './App.css';
 
 const API_BASE = 'http://localhost:8000/api';
 
+const upsertProfile = (list, profile) =>
+  list.some((p) => p.username === profile.username)
+    ? list.map((p) => (p.username === profile.username ? profile : p))
+    : [...list, profile];
+
+const renameInList = (list, from, profile) =>
+  list.some((p) => p.username === from)
+    ? list.filter((p) => p.username !== profile.username).map((p) => (p.username === from ? profile : p))
+    : upsertProfile(list, profile);
+
 export default function ProfileMatcherApp() {
   // --- STATE: SCENE MANAGEMENT ---
   const [scene, setScene] = useState('login'); // 'login', 'user', 'admin'
@@ -21,6 +31,8 @@ export default function ProfileMatcherApp() {
   const [matchFilters, setMatchFilters] = useState({ minAge: '', maxAge: '', username: '' });
   const [editMode, setEditMode] = useState(null);
   const [newUsername, setNewUsername] = useState('');
+  // Event id the change stream resumes after; set by every full load of the list
+  const [feedPosition, setFeedPosition] = useState(null);
 
   const showMessage = useCallback((text, type = 'success') => {
       setMessage({ text, type });
@@ -33,6 +45,7 @@ export default function ProfileMatcherApp() {
       const res = await fetch(`${API_BASE}/profiles`);
       const data = await res.json();
       setProfiles(data);
+      setFeedPosition(res.headers.get('X-Last-Event-Id'));
     } catch (err) {
       showMessage('Failed to load profiles', 'error');
     }
@@ -70,6 +83,23 @@ export default function ProfileMatcherApp() {
     }
   }, [scene, loadProfiles, loadInterests]);
 
+  // Keep the list current from the server's change stream instead of reloading it after every change.
+  // Events may repeat changes the last load already had, so each one is applied idempotently.
+  useEffect(() => {
+    if (scene === 'login' || feedPosition === null) return undefined;
+    const source = new EventSource(`${API_BASE}/profiles/stream?since=${encodeURIComponent(feedPosition)}`);
+    const on = (type, apply) => source.addEventListener(type, (e) => apply(JSON.parse(e.data)));
+
+    on('created', (profile) => setProfiles((list) => upsertProfile(list, profile)));
+    on('age-changed', (profile) => setProfiles((list) => upsertProfile(list, profile)));
+    on('renamed', (data) => setProfiles((list) => renameInList(list, data.from, data.profile)));
+    on('deleted', (data) => setProfiles((list) => list.filter((p) => p.username !== data.username)));
+    // Changes were missed (the server restarted, or this client fell behind): load everything again
+    on('reset', () => loadProfiles());
+
+    return () => source.close();
+  }, [scene, feedPosition, loadProfiles]);
+
   // --- NEW: AGE VALIDATION HELPER ---
   const validateAgeInput = (value) => {
     // Allow empty string (so user can delete)
@@ -109,7 +139,6 @@ export default function ProfileMatcherApp() {
       if (res.ok) {
         showMessage('Profile created successfully!');
         setNewProfile({ username: '', age: '', interest: '' });
-        loadProfiles();
       } else { showMessage('Failed to create', 'error'); }
     } catch (err) { showMessage('Error creating profile', 'error'); }
   };
@@ -118,7 +147,7 @@ export default function ProfileMatcherApp() {
     if (!newUsername.trim()) return;
     try {
       const res = await fetch(`${API_BASE}/profiles?currentName=${currentName}&newName=${newUsername}`, { method: 'PUT' });
-      if (res.ok) { showMessage('Renamed successfully!'); setEditMode(null); loadProfiles(); }
+      if (res.ok) { showMessage('Renamed successfully!'); setEditMode(null); }
     } catch (err) { showMessage('Error renaming', 'error'); }
   };
 
@@ -126,7 +155,7 @@ export default function ProfileMatcherApp() {
     if (!window.confirm(`Delete ${username}?`)) return;
     try {
       const res = await fetch(`${API_BASE}/profiles?username=${username}`, { method: 'DELETE' });
-      if (res.ok) { showMessage('Deleted successfully!'); loadProfiles(); }
+      if (res.ok) { showMessage('Deleted successfully!'); }
     } catch (err) { showMessage('Error deleting', 'error'); }
   };
 
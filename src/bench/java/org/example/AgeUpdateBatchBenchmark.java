@@ -0,0 +1,88 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Throughput and latency of age updates through AgeUpdateBatcher for several batch windows and sizes,
+// with a number of concurrent callers each waiting for its own update. Batch size 1 is the old behaviour
+// of one transaction per update. Runs against embedded H2 like PersistenceBenchmark.
+//
+// mvn -Pbench compile exec:java -Dexec.mainClass=org.example.AgeUpdateBatchBenchmark -Dbench.callers=32
+public class AgeUpdateBatchBenchmark {
+    private static final String URL = System.getProperty("bench.url",
+            "jdbc:h2:mem:batch;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    private static final int PROFILES = 10_000;
+    private static final int CALLERS = Integer.getInteger("bench.callers", 32);
+    private static final int UPDATES_PER_CALLER = Integer.getInteger("bench.updates", 200);
+    private static final int[] WINDOWS = {0, 1, 2, 5};
+    private static final int[] SIZES = {1, 50, 500};
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("db.url", URL);
+        createProfiles();
+
+        System.out.printf("%d callers x %d updates%n", CALLERS, UPDATES_PER_CALLER);
+        System.out.printf("%-10s %-6s %12s %10s %10s %10s%n", "window ms", "size", "updates/s", "p50 ms", "p99 ms", "per batch");
+        for (int size : SIZES) {
+            for (int window : WINDOWS) {
+                if (size == 1 && window > 0) continue;
+                run(window, size);
+            }
+        }
+    }
+
+    private static void run(int window, int size) throws Exception {
+        AgeUpdateBatcher batcher = new AgeUpdateBatcher(window, size, () -> false, (username, age) -> { });
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        long[] latencies = new long[CALLERS * UPDATES_PER_CALLER];
+
+        long start = System.nanoTime();
+        List<Future<?>> done = new ArrayList<>();
+        for (int c = 0; c < CALLERS; c++) {
+            int caller = c;
+            done.add(callers.submit(() -> {
+                for (int i = 0; i < UPDATES_PER_CALLER; i++) {
+                    int n = caller * UPDATES_PER_CALLER + i;
+                    long t = System.nanoTime();
+                    CompletableFuture<Boolean> result = batcher.submit(ProfileGenerator.username(n % PROFILES), 20 + n % 50);
+                    result.join();
+                    latencies[n] = System.nanoTime() - t;
+                }
+            }));
+        }
+        for (Future<?> f : done) f.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        callers.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%-10d %-6d %12.0f %10.2f %10.2f %10.1f%n", window, size, latencies.length / seconds,
+                latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6,
+                (double) batcher.getUpdates() / batcher.getBatches());
+    }
+
+    private static void createProfiles() throws SQLException {
+        try (Connection conn = Database.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS profiles");
+            stmt.execute("CREATE TABLE profiles (username VARCHAR(50) PRIMARY KEY, age INT, primary_interest VARCHAR(50))");
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO profiles VALUES (?, ?, ?)")) {
+                for (int i = 0; i < PROFILES; i++) {
+                    ps.setString(1, ProfileGenerator.username(i));
+                    ps.setInt(2, 30);
+                    ps.setString(3, "Hiking");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.example;
+
+import java.io.OutputStream;
+import java.util.List;
+
+// Scaling of BatchMatchJob with the parallelism level, writing to a discarding stream.
+//
+// mvn -Pbench compile exec:java -Dexec.mainClass=org.example.BatchMatchBenchmark -Dbench.size=100000
+public class BatchMatchBenchmark {
+    private static final int SIZE = Integer.getInteger("bench.size", 100_000);
+    private static final int K = Integer.getInteger("bench.k", 10);
+
+    public static void main(String[] args) throws Exception {
+        List<Profile> profiles = new ProfileGenerator(42).generate(SIZE);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Warm-up run
+        new BatchMatchJob(profiles, K, BatchMatchJob.Format.JSONL, cores).run(OutputStream.nullOutputStream());
+
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            new BatchMatchJob(profiles, K, BatchMatchJob.Format.JSONL, parallelism).run(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.example;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Compares the FIXED and VIRTUAL executor modes of a real ProfileServer over HTTP. A share of the requests
+// are renames, which save through Database's shared connection limiter into an embedded H2 database whose
+// inserts are slowed by a trigger to stand in for a remote PostgreSQL; the rest are in-memory page reads.
+// On the fixed pool the reads queue behind the renames waiting on the database.
+//
+// VIRTUAL needs JDK 21. Modes to run are chosen with -Dbench.modes=fixed,virtual.
+//
+// mvn -Pbench compile exec:java -Dexec.mainClass=org.example.ExecutorModeBenchmark
+public class ExecutorModeBenchmark {
+    private static final String URL = System.getProperty("bench.url",
+            "jdbc:h2:mem:executor;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    private static final String[] MODES = System.getProperty("bench.modes", "fixed,virtual").split(",");
+    private static final int REQUESTS = Integer.getInteger("bench.requests", 5000);
+    private static final int CLIENTS = Integer.getInteger("bench.clients", 100);
+    private static final double DB_SHARE = Double.parseDouble(System.getProperty("bench.dbShare", "0.2"));
+    private static final int DB_LATENCY_MS = Integer.getInteger("bench.dbLatencyMs", 20);
+    private static final int PROFILES = 1000;
+
+    // Sleeps on every inserted profile row, as a round trip to a remote database would
+    public static class SlowInsert implements org.h2.api.Trigger {
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+            try {
+                Thread.sleep(DB_LATENCY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Set before Database is initialized so it does not try to load the Postgres driver
+        System.setProperty("db.url", URL);
+        resetSchema();
+        ProfileManager manager = new ProfileManager();
+        for (int i = 0; i < PROFILES; i++) {
+            manager.addProfile(new Profile("user" + i, 18 + i % 60, Interest.of("Hiking"), new ArrayList<>()));
+        }
+        manager.saveState();
+        execute("CREATE TRIGGER slow_insert BEFORE INSERT ON profiles FOR EACH ROW CALL \""
+                + SlowInsert.class.getName() + "\"");
+
+        System.out.printf("%d requests from %d clients, %.0f%% renames saved through the database (%d ms per insert, "
+                + "%s connections)%n", REQUESTS, CLIENTS, DB_SHARE * 100, DB_LATENCY_MS,
+                System.getProperty("db.maxConnections", "10"));
+        for (int round = 0; round < 2; round++) {
+            // First round warms up the JIT
+            for (String mode : MODES) {
+                run(ProfileServer.ExecutorMode.valueOf(mode.trim().toUpperCase()), manager, round == 1);
+            }
+        }
+        Database.printPoolStats();
+    }
+
+    private static void run(ProfileServer.ExecutorMode mode, ProfileManager manager, boolean print) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        ProfileServer server = new ProfileServer(manager, mode, port);
+        server.start();
+        String base = "http://localhost:" + port + "/api/profiles";
+
+        HttpClient http = HttpClient.newBuilder().executor(Executors.newCachedThreadPool()).build();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long[] readLatencies = new long[REQUESTS];
+        long[] dbLatencies = new long[REQUESTS];
+        int readCount = 0;
+        int dbCount = 0;
+
+        List<Future<long[]>> futures = new ArrayList<>(CLIENTS);
+        long start = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            int client = c;
+            futures.add(clients.submit(() -> {
+                // Each client renames its own profile back and forth, so renames never conflict
+                String name = "user" + client;
+                String renamed = name + "r";
+                boolean isRenamed = false;
+                int count = REQUESTS / CLIENTS;
+                long[] results = new long[count * 2];
+                for (int i = 0; i < count; i++) {
+                    boolean db = (i * CLIENTS + client) % 100 < DB_SHARE * 100;
+                    HttpRequest request;
+                    if (db) {
+                        String from = isRenamed ? renamed : name;
+                        String to = isRenamed ? name : renamed;
+                        isRenamed = !isRenamed;
+                        request = HttpRequest.newBuilder(URI.create(base + "?currentName=" + from + "&newName=" + to))
+                                .PUT(HttpRequest.BodyPublishers.noBody()).build();
+                    } else {
+                        request = HttpRequest.newBuilder(URI.create(base + "?limit=20")).GET().build();
+                    }
+                    long sent = System.nanoTime();
+                    HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) throw new IOException("HTTP " + response.statusCode());
+                    results[i * 2] = db ? 1 : 0;
+                    results[i * 2 + 1] = System.nanoTime() - sent;
+                }
+                return results;
+            }));
+        }
+        for (Future<long[]> future : futures) {
+            long[] results = future.get();
+            for (int i = 0; i < results.length; i += 2) {
+                if (results[i] == 1) dbLatencies[dbCount++] = results[i + 1];
+                else readLatencies[readCount++] = results[i + 1];
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        server.stop();
+
+        if (print) {
+            int total = readCount + dbCount;
+            System.out.printf("%-8s total=%6.0fms  throughput=%7.0f req/s  read p50=%7.2fms p99=%7.2fms  "
+                            + "rename p50=%7.2fms p99=%7.2fms%n",
+                    mode, elapsed / 1e6, total / (elapsed / 1e9),
+                    percentile(readLatencies, readCount, 0.50), percentile(readLatencies, readCount, 0.99),
+                    percentile(dbLatencies, dbCount, 0.50), percentile(dbLatencies, dbCount, 0.99));
+        }
+    }
+
+    private static void resetSchema() throws SQLException {
+        execute("DROP TABLE IF EXISTS match_preferences");
+        execute("DROP TABLE IF EXISTS profiles");
+        execute("CREATE TABLE profiles (username VARCHAR(50) PRIMARY KEY, age INT, primary_interest VARCHAR(50))");
+        execute("CREATE TABLE match_preferences (id SERIAL PRIMARY KEY, "
+                + "profile_username VARCHAR(50) REFERENCES profiles(username) ON DELETE CASCADE, "
+                + "min_age INT, max_age INT)");
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = Database.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static double percentile(long[] values, int count, double p) {
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return sorted[Math.min(count - 1, (int) (count * p))] / 1e6;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+
+// Retained heap per profile: plain Profile objects vs ColumnarProfileStore.
+//
+// mvn -Pbench compile exec:java -Dexec.mainClass=org.example.HeapPerProfileBenchmark -Dbench.size=1000000
+public class HeapPerProfileBenchmark {
+    private static final int SIZE = Integer.getInteger("bench.size", 1_000_000);
+
+    public static void main(String[] args) {
+        long base = usedHeap();
+        List<Profile> profiles = new ProfileGenerator(42).generate(SIZE);
+        long objectsBytes = usedHeap() - base;
+
+        ColumnarProfileStore store = ColumnarProfileStore.from(profiles);
+        profiles = null;
+        long columnarBytes = usedHeap() - base;
+
+        System.out.printf("%d profiles%n", SIZE);
+        System.out.printf("Profile objects : %6.1f bytes/profile (%.1f MB)%n",
+                (double) objectsBytes / SIZE, objectsBytes / 1e6);
+        System.out.printf("Columnar store  : %6.1f bytes/profile (%.1f MB, columns estimate %.1f MB)%n",
+                (double) columnarBytes / SIZE, columnarBytes / 1e6, store.estimateBytes() / 1e6);
+        System.out.println("Check: " + store.view(SIZE - 1));
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
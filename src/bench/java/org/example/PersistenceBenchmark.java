@@ -0,0 +1,94 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Runs loadState / saveState / updateProfileAge against an embedded H2 database in PostgreSQL mode,
+// so persistence changes can be measured on a machine without a Postgres server.
+//
+// mvn -Pbench compile exec:java -Dexec.mainClass=org.example.PersistenceBenchmark -Dbench.sizes=10000,100000
+public class PersistenceBenchmark {
+    private static final String URL = System.getProperty("bench.url",
+            "jdbc:h2:mem:bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    private static final String[] SIZES = System.getProperty("bench.sizes", "10000,100000").split(",");
+    private static final int AGE_UPDATES = Integer.getInteger("bench.ageUpdates", 1000);
+    private static final double CHANGED_SHARE = 0.01;
+
+    public static void main(String[] args) throws Exception {
+        // Set before Database is initialized so it does not try to load the Postgres driver
+        System.setProperty("db.url", URL);
+        for (String size : SIZES) {
+            run(Integer.parseInt(size.trim()));
+        }
+    }
+
+    private static void run(int size) throws SQLException {
+        resetSchema();
+        System.out.println("\n=== " + size + " profiles ===");
+
+        List<Profile> profiles = new ProfileGenerator(42).generate(size);
+        ProfileManager writer = new ProfileManager();
+        for (Profile p : profiles) {
+            writer.addProfile(p);
+        }
+        measure("saveState (initial insert)", size, writer::saveState);
+
+        ProfileManager[] loaded = new ProfileManager[1];
+        measure("loadState", size, () -> loaded[0] = ProfileManager.loadState());
+        ProfileManager manager = loaded[0];
+
+        int changed = Math.max(1, (int) (size * CHANGED_SHARE));
+        for (int i = 0; i < changed; i++) {
+            Profile p = manager.findProfile(ProfileGenerator.username(i));
+            manager.updatePreference(p, 20, 30);
+        }
+        measure("saveState (" + changed + " changed)", changed, manager::saveState);
+
+        measure("saveState (no changes)", 0, manager::saveState);
+
+        int updates = Math.min(AGE_UPDATES, size);
+        measure("updateProfileAge x" + updates, updates, () -> {
+            for (int i = 0; i < updates; i++) {
+                manager.updateProfileAge(ProfileGenerator.username(i), 30 + i % 20);
+            }
+        });
+    }
+
+    private static void measure(String name, int rows, Runnable operation) {
+        long roundTrips = totalRoundTrips();
+        long transactions = totalTransactions();
+        long start = System.nanoTime();
+        operation.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-32s %9.1f ms  %10.0f rows/s  round trips=%-7d transactions=%d%n",
+                name, seconds * 1000, seconds > 0 ? rows / seconds : 0,
+                totalRoundTrips() - roundTrips, totalTransactions() - transactions);
+    }
+
+    private static long totalRoundTrips() {
+        return Database.getPools().stream().mapToLong(ConnectionPool::getRoundTrips).sum();
+    }
+
+    private static long totalTransactions() {
+        return Database.getPools().stream().mapToLong(ConnectionPool::getTransactions).sum();
+    }
+
+    // Same tables as the initialization script in the README
+    private static void resetSchema() throws SQLException {
+        try (Connection conn = Database.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS match_preferences");
+            stmt.execute("DROP TABLE IF EXISTS profiles");
+            stmt.execute("CREATE TABLE profiles (username VARCHAR(50) PRIMARY KEY, age INT, primary_interest VARCHAR(50))");
+            stmt.execute("CREATE TABLE match_preferences (id SERIAL PRIMARY KEY, "
+                    + "profile_username VARCHAR(50) REFERENCES profiles(username) ON DELETE CASCADE, "
+                    + "min_age INT, max_age INT)");
+            stmt.execute("CREATE INDEX match_preferences_profile ON match_preferences(profile_username)");
+            stmt.execute("DROP TABLE IF EXISTS profile_state");
+            stmt.execute("CREATE TABLE profile_state (id INT PRIMARY KEY, change_number BIGINT NOT NULL)");
+            stmt.execute("INSERT INTO profile_state VALUES (1, 0)");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic synthetic profiles for benchmarks; the same seed always gives the same data
+public class ProfileGenerator {
+    private static final String[] INTERESTS = {"Hiking", "Gaming", "Reading", "Cooking", "Fitness"};
+
+    private final Random random;
+
+    public ProfileGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static String username(int index) {
+        return "user" + index;
+    }
+
+    public Profile next(int index) {
+        int age = 13 + random.nextInt(70);
+        int minAge = Math.max(18, age - 5 - random.nextInt(5));
+        List<MatchPreference> prefs = new ArrayList<>(1);
+        prefs.add(new MatchPreference(minAge, minAge + 5 + random.nextInt(15)));
+        return new Profile(username(index), age, Interest.of(INTERESTS[random.nextInt(INTERESTS.length)]), prefs);
+    }
+
+    public List<Profile> generate(int count) {
+        List<Profile> profiles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            profiles.add(next(i));
+        }
+        return profiles;
+    }
+
+    // Registers the profiles as already persisted, so the change log stays empty
+    public ProfileManager populate(int count) {
+        ProfileManager manager = new ProfileManager();
+        for (int i = 0; i < count; i++) {
+            manager.register(next(i));
+        }
+        return manager;
+    }
+}
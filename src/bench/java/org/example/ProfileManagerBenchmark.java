@@ -0,0 +1,64 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbench compile exec:exec@jmh -Djmh.args="ProfileManagerBenchmark -p size=10000"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileManagerBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    private ProfileManager manager;
+    private Profile seeker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new ProfileGenerator(42).populate(size);
+        seeker = manager.findProfile(ProfileGenerator.username(0));
+    }
+
+    @Benchmark
+    public ProfileGroup groupProfilesByInterest() {
+        return manager.groupProfilesByInterest("Gaming");
+    }
+
+    @Benchmark
+    public List<Profile> ageRangeMatch() {
+        return manager.findMatches(seeker, new MatchPreference(25, 27));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Profile> sortByUsername() {
+        return manager.sortByUsername();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Profile> sortByAge() {
+        return manager.sortByAge();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void usernameLookup(Blackhole bh) {
+        String name = ProfileGenerator.username(ThreadLocalRandom.current().nextInt(size));
+        bh.consume(manager.findProfile(name.toUpperCase()));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean usernameExistsMiss() {
+        return manager.usernameExists("no-such-user");
+    }
+}
@@ -0,0 +1,102 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// mvn -Pbench compile exec:exec@jmh -Djmh.args="ProfileServerBenchmark -p size=10000"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileServerBenchmark {
+    private static final String CREATE_BODY =
+            "{\"username\":\"alice_smith\",\"age\":29,\"interest\":\"Hiking\",\"minAge\":25,\"maxAge\":35}";
+    private static final byte[] CREATE_BODY_BYTES = CREATE_BODY.getBytes(StandardCharsets.UTF_8);
+
+    @Param({"10000", "1000000", "10000000"})
+    public int size;
+
+    private List<Profile> profiles;
+    private CountingOutputStream sink;
+    private final ProfileRequestParser parser = new ProfileRequestParser();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        profiles = new ProfileGenerator(42).populate(size).getAllProfiles();
+        sink = new CountingOutputStream();
+    }
+
+    // Same encoding the GET /api/profiles handler streams to the exchange
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long serializeProfiles() throws IOException {
+        sink.count = 0;
+        ProfileJsonWriter writer = new ProfileJsonWriter(sink);
+        writer.beginArray();
+        for (Profile p : profiles) {
+            writer.writeProfile(p);
+        }
+        writer.endArray();
+        writer.flush();
+        return sink.count;
+    }
+
+    // Previous POST parsing: decode the whole body to a String, then one indexOf scan per field
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int extractValue() throws IOException {
+        String body = new String(new ByteArrayInputStream(CREATE_BODY_BYTES).readAllBytes(), StandardCharsets.UTF_8);
+        String name = extractValue(body, "username");
+        int age = Integer.parseInt(extractValue(body, "age"));
+        String interest = extractValue(body, "interest");
+        return name.length() + age + interest.length();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int requestParser() throws IOException, MalformedRequestException {
+        ProfileRequest request = parser.parse(new ByteArrayInputStream(CREATE_BODY_BYTES));
+        return request.getUsername().length() + request.getAge() + request.getInterest().length();
+    }
+
+    // The parser ProfileServer used before ProfileRequestParser, kept as the baseline
+    static String extractValue(String json, String key) {
+        String search = "\"" + key + "\":";
+        int start = json.indexOf(search);
+        if (start == -1) return "";
+        start += search.length();
+
+        if (json.charAt(start) == '"') {
+            start++;
+            int end = json.indexOf("\"", start);
+            return json.substring(start, end);
+        } else {
+            int end = json.indexOf(",", start);
+            if (end == -1) end = json.indexOf("}", start);
+            return json.substring(start, end).trim();
+        }
+    }
+
+    // Discards the bytes so only encoding is measured
+    static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+// Writers are serialized by the owner (ProfileManager's lock); readers need no lock and see each bucket
+// weakly consistent, as with any concurrent collection.
+public class AgeIndex {
+    public static final int MIN_AGE = 0;
+    public static final int MAX_AGE = 150;
+
+    // One bucket per possible age, so a range query only touches the ages inside the range.
+    // Buckets are in username order, so a profile must be taken out before its username or age changes.
+    private final List<NavigableSet<Profile>> buckets = new ArrayList<>(MAX_AGE + 1);
+    // Skip list sizes are not constant time, so the counts are kept alongside
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(MAX_AGE + 1);
+
+    public AgeIndex() {
+        for (int age = MIN_AGE; age <= MAX_AGE; age++) {
+            buckets.add(new ConcurrentSkipListSet<>(ProfileQuery.USERNAME_ORDER));
+        }
+    }
+
+    public static boolean isValidAge(int age) {
+        return age >= MIN_AGE && age <= MAX_AGE;
+    }
+
+    // Profiles with an age outside 0-150 (legacy rows) are simply not indexed
+    public void add(Profile p) {
+        int age = p.getAge();
+        if (isValidAge(age) && buckets.get(age).add(p)) {
+            counts.incrementAndGet(age);
+        }
+    }
+
+    // Must be called before the profile's age or username changes
+    public void remove(Profile p) {
+        int age = p.getAge();
+        if (isValidAge(age) && buckets.get(age).remove(p)) {
+            counts.decrementAndGet(age);
+        }
+    }
+
+    public int count(int minAge, int maxAge) {
+        int total = 0;
+        for (int age = Math.max(minAge, MIN_AGE); age <= Math.min(maxAge, MAX_AGE); age++) {
+            total += counts.get(age);
+        }
+        return total;
+    }
+
+    // Visits the profiles in the range without copying them into a list
+    public void forEachInRange(int minAge, int maxAge, Consumer<Profile> action) {
+        for (int age = Math.max(minAge, MIN_AGE); age <= Math.min(maxAge, MAX_AGE); age++) {
+            buckets.get(age).forEach(action);
+        }
+    }
+
+    // Profiles in the age range in username order, starting after the given position (null for the start).
+    // Merges the buckets lazily, so a page costs its own size times log(ages), not the whole range.
+    public Iterator<Profile> iterateByUsername(int minAge, int maxAge, Profile after) {
+        List<Iterator<Profile>> sources = new ArrayList<>();
+        for (int age = Math.max(minAge, MIN_AGE); age <= Math.min(maxAge, MAX_AGE); age++) {
+            NavigableSet<Profile> bucket = buckets.get(age);
+            sources.add((after == null ? bucket : bucket.tailSet(after, false)).iterator());
+        }
+        return new MergingIterator(sources);
+    }
+
+    private static final class MergingIterator implements Iterator<Profile> {
+        private static final class Head {
+            private final Profile profile;
+            private final Iterator<Profile> rest;
+
+            private Head(Profile profile, Iterator<Profile> rest) {
+                this.profile = profile;
+                this.rest = rest;
+            }
+        }
+
+        private final PriorityQueue<Head> heads =
+                new PriorityQueue<>((a, b) -> ProfileQuery.USERNAME_ORDER.compare(a.profile, b.profile));
+
+        private MergingIterator(List<Iterator<Profile>> sources) {
+            for (Iterator<Profile> source : sources) {
+                if (source.hasNext()) heads.add(new Head(source.next(), source));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Profile next() {
+            Head head = heads.poll();
+            if (head == null) throw new NoSuchElementException();
+            if (head.rest.hasNext()) heads.add(new Head(head.rest.next(), head.rest));
+            return head.profile;
+        }
+    }
+
+    public List<Profile> findInRange(int minAge, int maxAge) {
+        List<Profile> result = new ArrayList<>(count(minAge, maxAge));
+        for (int age = Math.max(minAge, MIN_AGE); age <= Math.min(maxAge, MAX_AGE); age++) {
+            result.addAll(buckets.get(age));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,159 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+// Group commit for age updates: callers queue an update and get a future, one thread collects what arrives
+// within the batch window (or until the batch is full) and writes it as one JDBC batch in one transaction.
+// Futures complete once that transaction has committed, with false for usernames that matched no row.
+public class AgeUpdateBatcher {
+    // 0 batches whatever queued up while the previous transaction ran, which measured best with callers
+    // that wait for their update (see AgeUpdateBatchBenchmark); a window helps open-loop bursts instead
+    public static final int WINDOW_MILLIS = Integer.getInteger("db.batchWindowMs", 0);
+    public static final int MAX_BATCH = Integer.getInteger("db.batchSize", 500);
+
+    private static final String SQL = "UPDATE profiles SET age = ? WHERE username = ?";
+
+    private static class Update {
+        private final String username;
+        private final int age;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private Update(String username, int age) {
+            this.username = username;
+            this.age = age;
+        }
+    }
+
+    private final int windowMillis;
+    private final int maxBatch;
+    private final BooleanSupplier changeTracking;
+    private final BiConsumer<String, Integer> onCommit;
+    private final Lock commitLock;
+    private final BlockingQueue<Update> queue = new LinkedBlockingQueue<>();
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    public AgeUpdateBatcher(int windowMillis, int maxBatch, BooleanSupplier changeTracking,
+                            BiConsumer<String, Integer> onCommit) {
+        this(windowMillis, maxBatch, changeTracking, onCommit, new ReentrantLock());
+    }
+
+    // onCommit runs on the batcher thread for every updated row, before its future completes. commitLock is held
+    // from the start of the transaction until every onCommit has run, so other writers of the same rows that
+    // take it never interleave with a batch.
+    public AgeUpdateBatcher(int windowMillis, int maxBatch, BooleanSupplier changeTracking,
+                            BiConsumer<String, Integer> onCommit, Lock commitLock) {
+        if (maxBatch < 1) throw new IllegalArgumentException("Batch size must be at least 1.");
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxBatch = maxBatch;
+        this.changeTracking = changeTracking;
+        this.onCommit = onCommit;
+        this.commitLock = commitLock;
+
+        Thread thread = new Thread(this::run, "age-update-batcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public CompletableFuture<Boolean> submit(String username, int age) {
+        Update update = new Update(username, age);
+        queue.add(update);
+        return update.result;
+    }
+
+    private void run() {
+        List<Update> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                // The window starts with the first update, so a lone update waits at most windowMillis
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Update next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            commitLock.lock();
+            try {
+                flush(batch);
+            } catch (RuntimeException e) {
+                // Keeps the thread alive; callers of this batch are told it failed instead of waiting forever
+                failedBatches.increment();
+                System.err.println("Update failed: " + e);
+                for (Update update : batch) update.result.complete(false);
+            } finally {
+                commitLock.unlock();
+            }
+            batch.clear();
+        }
+    }
+
+    // Caller holds commitLock
+    private void flush(List<Update> batch) {
+        int[] counts;
+        try (Connection conn = Database.connect();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+            conn.setAutoCommit(false);
+            try {
+                for (Update update : batch) {
+                    pstmt.setInt(1, update.age);
+                    pstmt.setString(2, update.username);
+                    pstmt.addBatch();
+                }
+                counts = pstmt.executeBatch();
+                if (changeTracking.getAsBoolean()) ProfileManager.bumpChangeNumber(conn);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            failedBatches.increment();
+            System.err.println("Update failed: " + e.getMessage());
+            for (Update update : batch) update.result.complete(false);
+            return;
+        }
+
+        batches.increment();
+        updates.add(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Update update = batch.get(i);
+            boolean updated = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+            if (updated) onCommit.accept(update.username, update.age);
+            update.result.complete(updated);
+        }
+    }
+
+    public long getUpdates() { return updates.sum(); }
+    public long getBatches() { return batches.sum(); }
+
+    @Override
+    public String toString() {
+        long batchCount = batches.sum();
+        return String.format("Age updates: %d in %d transactions (%.1f per batch, window %d ms, max %d), %d failed batches",
+                updates.sum(), batchCount, batchCount > 0 ? (double) updates.sum() / batchCount : 0.0,
+                windowMillis, maxBatch, failedBatches.sum());
+    }
+}
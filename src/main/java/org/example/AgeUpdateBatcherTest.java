@@ -0,0 +1,63 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgeUpdateBatcherTest {
+
+    private static void insert(String username, int age) throws Exception {
+        try (Connection conn = Database.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO profiles VALUES ('" + username + "', " + age + ", 'Hiking')");
+        }
+    }
+
+    @Test
+    void testCommitsAndReportsMissingRows() throws Exception {
+        TestDatabase.create(false);
+        insert("alice", 30);
+        AgeUpdateBatcher batcher = new AgeUpdateBatcher(0, 10, () -> false, (username, age) -> { });
+
+        assertTrue(batcher.submit("alice", 31).get(5, TimeUnit.SECONDS));
+        assertFalse(batcher.submit("nobody", 31).get(5, TimeUnit.SECONDS));
+        assertEquals(31, TestDatabase.count("SELECT age FROM profiles WHERE username = 'alice'"));
+    }
+
+    @Test
+    void testCallbackFailureDoesNotStopBatcher() throws Exception {
+        TestDatabase.create(false);
+        insert("alice", 30);
+        insert("bob", 40);
+        AgeUpdateBatcher batcher = new AgeUpdateBatcher(0, 10, () -> false, (username, age) -> {
+            if (username.equals("bob")) throw new IllegalStateException("broken callback");
+        });
+
+        assertFalse(batcher.submit("bob", 41).get(5, TimeUnit.SECONDS));
+        assertTrue(batcher.submit("alice", 31).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testBatchWaitsForCommitLock() throws Exception {
+        TestDatabase.create(false);
+        insert("alice", 30);
+        ReentrantLock lock = new ReentrantLock();
+        AgeUpdateBatcher batcher = new AgeUpdateBatcher(0, 10, () -> false, (username, age) -> { }, lock);
+
+        lock.lock();
+        CompletableFuture<Boolean> result;
+        try {
+            result = batcher.submit("alice", 31);
+            assertThrows(TimeoutException.class, () -> result.get(100, TimeUnit.MILLISECONDS));
+            assertEquals(30, TestDatabase.count("SELECT age FROM profiles WHERE username = 'alice'"));
+        } finally {
+            lock.unlock();
+        }
+        assertTrue(result.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -1,18 +1,24 @@
 package org.example;
 
+import java.nio.file.Paths;
+
 public class App {
     public static void main(String[] args) {
         System.out.println("Testing Database Connection...");
-        Database.connect();
+        Database.testConnection();
 
 
-        ProfileManager manager = ProfileManager.loadState();
+        ProfileManager manager = ProfileManager.loadWarm();
+        String walDir = System.getProperty("wal.dir", "wal");
+        if (!walDir.isEmpty()) manager.openWriteAheadLog(Paths.get(walDir));
 
         ProfileServer server = new ProfileServer(manager);
         server.start();
 
         manager.startAutoSaveThread();
+        if (Boolean.getBoolean("match.graph")) manager.startMatchGraphThread();
         manager.startInteractiveConsole();
         manager.saveState();
+        manager.writeSnapshot();
     }
 }
\ No newline at end of file
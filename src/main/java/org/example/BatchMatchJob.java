@@ -0,0 +1,170 @@
+package org.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// "Matches for everyone" export. Seekers are split across a ForkJoinPool; every task reads the same
+// read-only age and interest indexes built once from a snapshot, and writes its chunk of results to the
+// shared stream. Every seeker appears in the output, also those without a single match: as a line with an
+// empty "matches" array in JSONL, and as one row with rank 0 and empty match columns in CSV.
+//
+// java org.example.BatchMatchJob <output file> [jsonl|csv] [k] [parallelism]
+public class BatchMatchJob {
+    public enum Format { JSONL, CSV }
+
+    private static final int CHUNK_SIZE = 256;
+    private static final long PROGRESS_INTERVAL_SECONDS = 5;
+
+    private final List<Profile> seekers;
+    private final AgeIndex ageIndex = new AgeIndex();
+    private final InterestIndex interestIndex = new InterestIndex();
+    private final MatchEngine engine = new MatchEngine("batch");
+    private final int k;
+    private final Format format;
+    private final int parallelism;
+    private final AtomicLong processed = new AtomicLong();
+
+    public BatchMatchJob(List<Profile> profiles, int k, Format format, int parallelism) {
+        this.seekers = profiles;
+        this.k = k;
+        this.format = format;
+        this.parallelism = parallelism;
+        // Never written after this, so all workers can read it without locking
+        for (Profile p : profiles) {
+            ageIndex.add(p);
+            interestIndex.add(p);
+        }
+    }
+
+    public void run(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        if (format == Format.CSV) {
+            out.write("username,rank,match_username,score\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-match-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        progress.scheduleAtFixedRate(() -> printProgress(start),
+                PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new MatchTask(out, 0, seekers.size()));
+        } finally {
+            pool.shutdown();
+            progress.shutdownNow();
+        }
+        out.flush();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[Batch] Matched %d profiles in %.2f s with parallelism %d (%.0f profiles/s). Engine: %s%n",
+                processed.get(), seconds, parallelism, seconds > 0 ? processed.get() / seconds : 0, engine);
+    }
+
+    private void printProgress(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long done = processed.get();
+        System.out.printf("[Batch] %d/%d profiles (%.1f%%), %.0f profiles/s%n",
+                done, seekers.size(), 100.0 * done / Math.max(1, seekers.size()), done / seconds);
+    }
+
+    private class MatchTask extends RecursiveAction {
+        private final OutputStream out;
+        private final int from;
+        private final int to;
+
+        MatchTask(OutputStream out, int from, int to) {
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new MatchTask(out, from, mid), new MatchTask(out, mid, to));
+                return;
+            }
+
+            // Each chunk is encoded privately and written in one go, so workers only meet on the final write
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            try {
+                for (int i = from; i < to; i++) {
+                    Profile seeker = seekers.get(i);
+                    List<MatchEngine.Match> matches = engine.topMatches(seeker, ageIndex, interestIndex, k);
+                    if (format == Format.CSV) writeCsv(chunk, seeker, matches);
+                    else writeJsonLine(chunk, seeker, matches);
+                }
+                synchronized (out) {
+                    chunk.writeTo(out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            processed.addAndGet(to - from);
+        }
+    }
+
+    private static void writeJsonLine(OutputStream out, Profile seeker, List<MatchEngine.Match> matches) throws IOException {
+        ProfileJsonWriter writer = new ProfileJsonWriter(out, 1024);
+        writer.writeRaw(ascii("{\"username\":"));
+        writer.writeString(seeker.getUsername());
+        writer.writeRaw(ascii(",\"matches\":"));
+        writer.beginArray();
+        for (MatchEngine.Match match : matches) {
+            writer.writeMatch(match.getProfile(), match.getScore());
+        }
+        writer.endArray();
+        writer.writeRaw(ascii("}\n"));
+        writer.flush();
+    }
+
+    private static void writeCsv(OutputStream out, Profile seeker, List<MatchEngine.Match> matches) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        if (matches.isEmpty()) {
+            lines.append(csv(seeker.getUsername())).append(",0,,\n");
+        }
+        for (int rank = 0; rank < matches.size(); rank++) {
+            MatchEngine.Match match = matches.get(rank);
+            lines.append(csv(seeker.getUsername())).append(',')
+                    .append(rank + 1).append(',')
+                    .append(csv(match.getProfile().getUsername())).append(',')
+                    .append(Math.round(match.getScore() * 1000) / 1000.0).append('\n');
+        }
+        out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: BatchMatchJob <output file> [jsonl|csv] [k] [parallelism]");
+            return;
+        }
+        Format format = args.length > 1 ? Format.valueOf(args[1].toUpperCase()) : Format.JSONL;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        ProfileManager manager = ProfileManager.loadState();
+        BatchMatchJob job = new BatchMatchJob(manager.getAllProfiles(), k, format, parallelism);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[0]), 1 << 16)) {
+            job.run(out);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchMatchJobTest {
+
+    private static Profile profile(String username, int age, String interest, int... range) {
+        List<MatchPreference> prefs = new ArrayList<>();
+        if (range.length == 2) prefs.add(new MatchPreference(range[0], range[1]));
+        return new Profile(username, age, Interest.of(interest), prefs);
+    }
+
+    private static List<Profile> profiles() {
+        return List.of(
+                profile("alice", 30, "Hiking", 25, 35),
+                profile("bob", 32, "Hiking"),
+                profile("carol,\r", 28, "Gaming"),
+                // Nobody else is 10-14, so the kid has no matches at all
+                profile("kid", 12, "Reading", 10, 14));
+    }
+
+    private static String run(BatchMatchJob.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BatchMatchJob(profiles(), 2, format, 2).run(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testJsonLinesListEverySeeker() throws Exception {
+        String[] lines = run(BatchMatchJob.Format.JSONL).split("\n");
+
+        assertEquals(4, lines.length);
+        assertTrue(List.of(lines).contains("{\"username\":\"kid\",\"matches\":[]}"), String.join("\n", lines));
+        for (String line : lines) {
+            if (line.startsWith("{\"username\":\"alice\"")) {
+                assertTrue(line.indexOf("\"bob\"") < line.indexOf("\"carol,\\r\""), line);
+            }
+        }
+    }
+
+    @Test
+    void testCsvListsEverySeekerAndQuotesLineBreaks() throws Exception {
+        String[] rows = run(BatchMatchJob.Format.CSV).split("\n");
+
+        assertEquals("username,rank,match_username,score", rows[0]);
+        // Two matches each for the three adults, one empty row for the kid
+        assertEquals(8, rows.length);
+        List<String> body = List.of(rows).subList(1, rows.length);
+        assertTrue(body.contains("kid,0,,"), String.join("\n", body));
+        assertTrue(body.stream().anyMatch(row -> row.startsWith("alice,1,bob,")), String.join("\n", body));
+        assertTrue(body.stream().anyMatch(row -> row.startsWith("alice,2,\"carol,\r\",")), String.join("\n", body));
+        assertEquals(2, body.stream().filter(row -> row.startsWith("\"carol,\r\",")).count());
+    }
+
+    @Test
+    void testInterestIndexGivesSameScoresAsAgeScan() {
+        Random random = new Random(3);
+        String[] interests = {"Hiking", "Gaming", "Reading"};
+        AgeIndex ages = new AgeIndex();
+        InterestIndex byInterest = new InterestIndex();
+        List<Profile> all = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int min = 15 + random.nextInt(40);
+            Profile p = random.nextBoolean()
+                    ? profile("user" + i, 14 + random.nextInt(50), interests[random.nextInt(3)], min, min + 15)
+                    : profile("user" + i, 14 + random.nextInt(50), interests[random.nextInt(3)]);
+            all.add(p);
+            ages.add(p);
+            byInterest.add(p);
+        }
+
+        MatchEngine engine = new MatchEngine();
+        for (Profile seeker : all) {
+            List<MatchEngine.Match> expected = engine.topMatches(seeker, ages, 5);
+            List<MatchEngine.Match> actual = engine.topMatches(seeker, ages, byInterest, 5);
+            assertEquals(expected.size(), actual.size(), seeker.getUsername());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9, seeker.getUsername());
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+// An encoded response body kept for as long as the data it was built from is unchanged, so repeated requests
+// cost one array write, and clients revalidating with If-None-Match get an empty 304. The gzip form is made on
+// the first request that accepts it. ETags are weak, so both encodings share one.
+public class CachedResponse {
+    // Below this gzip saves too little to be worth the Content-Encoding
+    private static final int MIN_GZIP_BYTES = 1024;
+
+    private final long version;
+    private final String etag;
+    private final byte[] body;
+    private volatile byte[] gzipped;
+
+    public CachedResponse(long version, String tag, byte[] body) {
+        this.version = version;
+        this.etag = etag(tag);
+        this.body = body;
+    }
+
+    public static String etag(String tag) {
+        return "W/\"" + tag + "\"";
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    public int size() {
+        return body.length;
+    }
+
+    public void send(HttpExchange exchange, String contentType, String cacheControl) throws IOException {
+        if (notModified(exchange, etag)) {
+            sendNotModified(exchange, etag, cacheControl);
+            return;
+        }
+        Headers headers = exchange.getResponseHeaders();
+        setValidators(headers, etag, cacheControl);
+        headers.set("Content-Type", contentType);
+        byte[] bytes = body;
+        if (body.length >= MIN_GZIP_BYTES && acceptsGzip(exchange)) {
+            bytes = gzipped();
+            headers.set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    // Two threads may both compress on the first request; either result is fine
+    private byte[] gzipped() {
+        byte[] result = gzipped;
+        if (result == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+                gzip.write(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            result = out.toByteArray();
+            gzipped = result;
+        }
+        return result;
+    }
+
+    // True if If-None-Match lists this ETag or "*". Compared weakly, as If-None-Match requires.
+    public static boolean notModified(HttpExchange exchange, String etag) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) return false;
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || opaqueTag(candidate).equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    public static void sendNotModified(HttpExchange exchange, String etag, String cacheControl) throws IOException {
+        setValidators(exchange.getResponseHeaders(), etag, cacheControl);
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+    }
+
+    public static void setValidators(Headers headers, String etag, String cacheControl) {
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", cacheControl);
+        headers.set("Vary", "Accept-Encoding");
+    }
+
+    // gzip listed in Accept-Encoding without q=0
+    static boolean acceptsGzip(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accept == null) return false;
+        for (String coding : accept.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) continue;
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].trim().matches("q=0(\\.0*)?")) refused = true;
+            }
+            if (!refused) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,306 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Compact alternative to holding one Profile object graph per row. Every field lives in a primitive column:
+// ages in an int[], interests as byte ordinals, preferences as packed short min/max pairs, and usernames as
+// UTF-8 in a shared byte arena where identical names are stored once. Rows handed out by view() are
+// short-lived read-only flyweights over those columns; toProfile() copies one out as a regular Profile.
+//
+// Not thread-safe for writes; meant to be filled by one thread and then read (e.g. bulk jobs, snapshots).
+public class ColumnarProfileStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    // Ordinal of a row without an interest (NULL primary_interest); never used for a named interest
+    private static final int NO_INTEREST = 0xFF;
+    // Name lengths are stored as unsigned shorts
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private int size;
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private byte[] interestOrdinals = new byte[INITIAL_CAPACITY];
+
+    private int[] nameStart = new int[INITIAL_CAPACITY];
+    private short[] nameLength = new short[INITIAL_CAPACITY];
+    private byte[] nameArena = new byte[INITIAL_CAPACITY * 8];
+    private int arenaSize;
+    // Only used while building, to store each distinct name once; dropped by compact()
+    private Map<String, Integer> nameOffsets = new HashMap<>();
+
+    // Preferences of row i are pairs [prefStart[i], prefStart[i + 1]) in prefAges, stored as min, max
+    private int[] prefStart = new int[INITIAL_CAPACITY + 1];
+    private short[] prefAges = new short[INITIAL_CAPACITY * 2];
+
+    private final List<Interest> interests = new ArrayList<>();
+    private final Map<Interest, Integer> interestOrdinal = new HashMap<>();
+
+    public static ColumnarProfileStore from(Collection<Profile> profiles) {
+        ColumnarProfileStore store = new ColumnarProfileStore();
+        for (Profile p : profiles) store.add(p);
+        store.compact();
+        return store;
+    }
+
+    public int add(Profile p) {
+        ensureCapacity(size + 1);
+        int row = size;
+        ages[row] = p.getAge();
+        interestOrdinals[row] = ordinalOf(p.getPrimaryInterest());
+        storeName(row, p.getUsername());
+
+        List<MatchPreference> prefs = p.getPreferences();
+        int start = prefStart[row];
+        int needed = start + prefs.size() * 2;
+        if (needed > prefAges.length) prefAges = Arrays.copyOf(prefAges, Math.max(needed, prefAges.length * 2));
+        for (int i = 0; i < prefs.size(); i++) {
+            prefAges[start + i * 2] = (short) prefs.get(i).getMinAge();
+            prefAges[start + i * 2 + 1] = (short) prefs.get(i).getMaxAge();
+        }
+        prefStart[row + 1] = needed;
+        size++;
+        return row;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getAge(int row) {
+        return ages[row];
+    }
+
+    public void setAge(int row, int age) {
+        ages[row] = age;
+    }
+
+    public Interest getInterest(int row) {
+        int ordinal = interestOrdinals[row] & 0xFF;
+        return ordinal == NO_INTEREST ? Interest.of(null) : interests.get(ordinal);
+    }
+
+    public String getUsername(int row) {
+        return new String(nameArena, nameStart[row], nameLength[row] & 0xFFFF, StandardCharsets.UTF_8);
+    }
+
+    public void setUsername(int row, String username) {
+        storeName(row, username);
+    }
+
+    public int getPreferenceCount(int row) {
+        return (prefStart[row + 1] - prefStart[row]) / 2;
+    }
+
+    public int getMinAge(int row, int preference) {
+        return prefAges[prefStart[row] + preference * 2];
+    }
+
+    public int getMaxAge(int row, int preference) {
+        return prefAges[prefStart[row] + preference * 2 + 1];
+    }
+
+    public List<MatchPreference> getPreferences(int row) {
+        int count = getPreferenceCount(row);
+        List<MatchPreference> prefs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            prefs.add(new MatchPreference(getMinAge(row, i), getMaxAge(row, i)));
+        }
+        return prefs;
+    }
+
+    // Flyweight over one row; create as needed instead of keeping them around
+    public Row view(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        return new Row(this, row);
+    }
+
+    // All rows as a list of flyweights created on access
+    public List<Row> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Row get(int index) {
+                return view(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Trims every column to its size and drops the build-time dedup map
+    public void compact() {
+        ages = Arrays.copyOf(ages, size);
+        interestOrdinals = Arrays.copyOf(interestOrdinals, size);
+        nameStart = Arrays.copyOf(nameStart, size);
+        nameLength = Arrays.copyOf(nameLength, size);
+        nameArena = Arrays.copyOf(nameArena, arenaSize);
+        prefStart = Arrays.copyOf(prefStart, size + 1);
+        prefAges = Arrays.copyOf(prefAges, prefStart[size]);
+        nameOffsets = null;
+    }
+
+    // Approximate heap held by the columns, excluding array headers
+    public long estimateBytes() {
+        return ages.length * 4L + interestOrdinals.length + nameStart.length * 4L + nameLength.length * 2L
+                + nameArena.length + prefStart.length * 4L + prefAges.length * 2L;
+    }
+
+    // Bytes needed by writeTo(); the store must be compacted first
+    public long serializedSize() {
+        long bytes = 4 + 4 + 4;
+        for (Interest interest : interests) {
+            bytes += 2 + interest.getName().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return bytes + estimateBytes();
+    }
+
+    // Column layout: size, interests, arena size, then each column as a raw array
+    public void writeTo(ByteBuffer out) {
+        out.putInt(size);
+        out.putInt(interests.size());
+        for (Interest interest : interests) {
+            byte[] name = checkedName(interest.getName());
+            out.putShort((short) name.length);
+            out.put(name);
+        }
+        out.putInt(arenaSize);
+        out.asIntBuffer().put(ages, 0, size);
+        out.position(out.position() + size * 4);
+        out.put(interestOrdinals, 0, size);
+        out.asIntBuffer().put(nameStart, 0, size);
+        out.position(out.position() + size * 4);
+        out.asShortBuffer().put(nameLength, 0, size);
+        out.position(out.position() + size * 2);
+        out.put(nameArena, 0, arenaSize);
+        out.asIntBuffer().put(prefStart, 0, size + 1);
+        out.position(out.position() + (size + 1) * 4);
+        out.asShortBuffer().put(prefAges, 0, prefStart[size]);
+        out.position(out.position() + prefStart[size] * 2);
+    }
+
+    public static ColumnarProfileStore readFrom(ByteBuffer in) {
+        ColumnarProfileStore store = new ColumnarProfileStore();
+        int size = in.getInt();
+        int interestCount = in.getInt();
+        for (int i = 0; i < interestCount; i++) {
+            byte[] name = new byte[in.getShort() & 0xFFFF];
+            in.get(name);
+            store.ordinalOf(Interest.of(new String(name, StandardCharsets.UTF_8)));
+        }
+        store.arenaSize = in.getInt();
+        store.size = size;
+
+        store.ages = new int[size];
+        in.asIntBuffer().get(store.ages);
+        in.position(in.position() + size * 4);
+        store.interestOrdinals = new byte[size];
+        in.get(store.interestOrdinals);
+        store.nameStart = new int[size];
+        in.asIntBuffer().get(store.nameStart);
+        in.position(in.position() + size * 4);
+        store.nameLength = new short[size];
+        in.asShortBuffer().get(store.nameLength);
+        in.position(in.position() + size * 2);
+        store.nameArena = new byte[store.arenaSize];
+        in.get(store.nameArena);
+        store.prefStart = new int[size + 1];
+        in.asIntBuffer().get(store.prefStart);
+        in.position(in.position() + (size + 1) * 4);
+        store.prefAges = new short[store.prefStart[size]];
+        in.asShortBuffer().get(store.prefAges);
+        in.position(in.position() + store.prefAges.length * 2);
+        store.nameOffsets = null;
+        return store;
+    }
+
+    private byte ordinalOf(Interest interest) {
+        if (interest == null || interest.getName() == null) return (byte) NO_INTEREST;
+        Interest canonical = Interest.of(interest.getName());
+        Integer ordinal = interestOrdinal.get(canonical);
+        if (ordinal == null) {
+            if (interests.size() == NO_INTEREST) {
+                throw new IllegalStateException("More than " + NO_INTEREST + " distinct interests.");
+            }
+            ordinal = interests.size();
+            interests.add(canonical);
+            interestOrdinal.put(canonical, ordinal);
+        }
+        return (byte) (int) ordinal;
+    }
+
+    private static byte[] checkedName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name of " + bytes.length + " bytes is longer than " + MAX_NAME_BYTES
+                    + " bytes.");
+        }
+        return bytes;
+    }
+
+    private void storeName(int row, String username) {
+        byte[] bytes = checkedName(username);
+        Integer existing = nameOffsets == null ? null : nameOffsets.get(username);
+        if (existing != null) {
+            nameStart[row] = existing;
+        } else {
+            if (arenaSize + bytes.length > nameArena.length) {
+                nameArena = Arrays.copyOf(nameArena, Math.max(arenaSize + bytes.length, nameArena.length * 2));
+            }
+            System.arraycopy(bytes, 0, nameArena, arenaSize, bytes.length);
+            nameStart[row] = arenaSize;
+            if (nameOffsets != null) nameOffsets.put(username, arenaSize);
+            arenaSize += bytes.length;
+        }
+        nameLength[row] = (short) bytes.length;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= ages.length) return;
+        int capacity = Math.max(rows, ages.length * 2);
+        ages = Arrays.copyOf(ages, capacity);
+        interestOrdinals = Arrays.copyOf(interestOrdinals, capacity);
+        nameStart = Arrays.copyOf(nameStart, capacity);
+        nameLength = Arrays.copyOf(nameLength, capacity);
+        prefStart = Arrays.copyOf(prefStart, capacity + 1);
+    }
+
+    // Reads through to the columns; two views of the same row are equal. Deliberately not a Profile: the
+    // columns cannot grow a row's preferences in place, so views are never handed out as something mutable.
+    public static final class Row {
+        private final ColumnarProfileStore store;
+        private final int row;
+
+        private Row(ColumnarProfileStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        public String getUsername() { return store.getUsername(row); }
+        public int getAge() { return store.getAge(row); }
+        public Interest getPrimaryInterest() { return store.getInterest(row); }
+        public List<MatchPreference> getPreferences() { return store.getPreferences(row); }
+
+        // Detached copy, independent of the store
+        public Profile toProfile() {
+            return new Profile(getUsername(), getAge(), getPrimaryInterest(), getPreferences());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Row && ((Row) o).store == store && ((Row) o).row == row;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(store) * 31 + row;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-15s (Age: %d) | Primary: %s",
+                    getUsername(), getAge(), getPrimaryInterest().getName());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarProfileStoreTest {
+
+    private static Profile profile(String username, int age, int minAge, int maxAge) {
+        List<MatchPreference> prefs = new ArrayList<>();
+        prefs.add(new MatchPreference(minAge, maxAge));
+        return new Profile(username, age, Interest.of("Reading"), prefs);
+    }
+
+    @Test
+    void testViewsReadThroughToColumns() {
+        ColumnarProfileStore store = ColumnarProfileStore.from(List.of(profile("alice", 30, 25, 35),
+                profile("bob", 40, 35, 45)));
+        ColumnarProfileStore.Row row = store.view(1);
+
+        store.setAge(1, 41);
+
+        assertEquals("bob", row.getUsername());
+        assertEquals(41, row.getAge());
+        assertEquals("Reading", row.getPrimaryInterest().getName());
+        assertEquals(45, row.getPreferences().get(0).getMaxAge());
+        assertEquals(store.view(1), row);
+        assertNotEquals(store.view(0), row);
+        assertThrows(IndexOutOfBoundsException.class, () -> store.view(2));
+    }
+
+    @Test
+    void testToProfileIsDetachedAndMutable() {
+        ColumnarProfileStore store = ColumnarProfileStore.from(List.of(profile("alice", 30, 25, 35)));
+        Profile copy = store.view(0).toProfile();
+
+        copy.setAge(31);
+        copy.setPreferences(new ArrayList<>());
+
+        assertEquals(30, store.getAge(0));
+        assertEquals(1, store.getPreferenceCount(0));
+    }
+
+    @Test
+    void testLongUsernamesUpToUnsignedShortLength() {
+        String longName = "x".repeat(40_000);
+        ColumnarProfileStore store = ColumnarProfileStore.from(List.of(profile(longName, 30, 25, 35)));
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) store.serializedSize());
+        store.writeTo(buffer);
+        buffer.flip();
+
+        assertEquals(longName, ColumnarProfileStore.readFrom(buffer).getUsername(0));
+    }
+
+    @Test
+    void testRejectsUsernamesLongerThanLengthColumn() {
+        ColumnarProfileStore store = new ColumnarProfileStore();
+        assertThrows(IllegalArgumentException.class, () -> store.add(profile("x".repeat(70_000), 30, 25, 35)));
+        assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,289 @@
+package org.example;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectionPool {
+    private static final long BORROW_TIMEOUT_MS = 30_000;
+    // Connections used more recently than this are handed out without a validation round trip
+    private static final long VALIDATION_WINDOW_MS = 1_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+
+    // Shared cap across pools, and this pool's own cap of maxSize connections in use
+    private final Semaphore permits;
+    private final Semaphore poolPermits;
+    private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    // Set by close(): connections still borrowed are closed when they come back instead of kept idle
+    private volatile boolean closed;
+
+    private final AtomicInteger active = new AtomicInteger();
+    // Callers of this pool blocked on the limiter, which may be shared with other pools
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong borrowWaitNanos = new AtomicLong();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    // Statement executions (one round trip each, not counting extra cursor fetches) and committed transactions
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final AtomicLong transactions = new AtomicLong();
+    private final LatencyHistogram acquireTime;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long idleTimeoutMs) {
+        this(url, user, password, maxSize, idleTimeoutMs, new Semaphore(maxSize, true));
+    }
+
+    // Pools built with the same limiter share one cap on connections in use across all of them
+    public ConnectionPool(String url, String user, String password, int maxSize, long idleTimeoutMs, Semaphore limiter) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.permits = limiter;
+        this.poolPermits = new Semaphore(maxSize, true);
+        this.acquireTime = Metrics.histogram("db_connection_acquire_seconds", "Time to borrow a pooled connection.",
+                Metrics.label("user", user));
+    }
+
+    // A pool that reports its gauges on /api/metrics. They are registered once the pool is fully built,
+    // so the registry never sees a half-constructed pool.
+    public static ConnectionPool create(String url, String user, String password, int maxSize, long idleTimeoutMs,
+                                        Semaphore limiter) {
+        ConnectionPool pool = new ConnectionPool(url, user, password, maxSize, idleTimeoutMs, limiter);
+        String labels = Metrics.label("user", user);
+        Metrics.gauge("db_pool_active_connections", "Connections borrowed from the pool.", labels, pool::getActive);
+        Metrics.gauge("db_pool_idle_connections", "Open connections waiting in the pool.", labels, pool::getIdle);
+        Metrics.gauge("db_pool_waiting_threads", "Threads waiting for a connection from this pool.", labels,
+                pool::getWaiting);
+        return pool;
+    }
+
+    // Blocks while all connections of this pool, or all connections under the shared limiter, are in use.
+    // The returned connection goes back to the pool on close().
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool for user '" + user + "' is closed.");
+        long start = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(BORROW_TIMEOUT_MS);
+        waiting.incrementAndGet();
+        try {
+            if (!poolPermits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLException("Timed out waiting for a connection for user '" + user + "'.");
+            }
+            if (!permits.tryAcquire(timeoutNanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS)) {
+                poolPermits.release();
+                throw new SQLException("Timed out waiting for a connection for user '" + user + "'.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            Connection raw = takeIdle();
+            if (raw == null) {
+                raw = DriverManager.getConnection(url, user, password);
+                created.incrementAndGet();
+            }
+            active.incrementAndGet();
+            return wrap(raw);
+        } catch (SQLException | RuntimeException e) {
+            releasePermits();
+            throw e;
+        }
+    }
+
+    private void releasePermits() {
+        permits.release();
+        poolPermits.release();
+    }
+
+    private Connection takeIdle() {
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - entry.since < VALIDATION_WINDOW_MS || isValid(entry.connection)) {
+                return entry.connection;
+            }
+            closeQuietly(entry.connection);
+            evicted.incrementAndGet();
+        }
+        return null;
+    }
+
+    private void giveBack(Connection raw) {
+        active.decrementAndGet();
+        try {
+            if (raw.isClosed()) {
+                return;
+            }
+            // A retired pool keeps nothing; idle never holds more than maxSize
+            if (closed || idle.size() >= maxSize) {
+                closeQuietly(raw);
+                return;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            // Most recently used first, so the tail is what ages out
+            idle.offerFirst(new IdleConnection(raw, System.currentTimeMillis()));
+            // close() may have run since the check above; it must not miss this connection
+            if (closed) close();
+        } catch (SQLException e) {
+            closeQuietly(raw);
+        } finally {
+            releasePermits();
+        }
+    }
+
+    // Closes connections that have been idle longer than the idle timeout
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        Iterator<IdleConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            IdleConnection entry = it.next();
+            if (entry.since < cutoff && idle.removeFirstOccurrence(entry)) {
+                closeQuietly(entry.connection);
+                evicted.incrementAndGet();
+            }
+        }
+    }
+
+    // Closes the idle connections now and every borrowed one when it is returned; borrow() fails afterwards
+    public void close() {
+        closed = true;
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.connection);
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrowCount.incrementAndGet();
+        acquireTime.record(nanos);
+        borrowWaitNanos.addAndGet(nanos);
+        maxBorrowWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // Hands out a proxy so callers keep using try-with-resources; close() returns the connection exactly once
+    private Connection wrap(Connection raw) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (closed.compareAndSet(false, true)) giveBack(raw);
+                            return null;
+                        case "isClosed":
+                            return closed.get() || raw.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled[" + user + "] " + raw;
+                        default:
+                            if (closed.get()) throw new SQLException("Connection has been returned to the pool.");
+                            if (method.getName().equals("commit")) transactions.incrementAndGet();
+                            Object result;
+                            try {
+                                result = method.invoke(raw, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                            if (result instanceof Statement) {
+                                return wrapStatement(raw, (Statement) result, method.getReturnType());
+                            }
+                            return result;
+                    }
+                });
+    }
+
+    // Counts executions so persistence benchmarks can report round trips and transactions per operation
+    private Object wrapStatement(Connection raw, Statement statement, Class<?> type) {
+        return Proxy.newProxyInstance(
+                Statement.class.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        roundTrips.incrementAndGet();
+                        if (raw.getAutoCommit()) transactions.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    public String getUser() { return user; }
+    public int getMaxSize() { return maxSize; }
+    public int getActive() { return active.get(); }
+    public int getIdle() { return idle.size(); }
+    public int getWaiting() { return waiting.get(); }
+    public boolean isClosed() { return closed; }
+    public long getBorrowCount() { return borrowCount.get(); }
+    public long getBorrowWaitNanos() { return borrowWaitNanos.get(); }
+    public long getMaxBorrowWaitNanos() { return maxBorrowWaitNanos.get(); }
+    public long getCreated() { return created.get(); }
+    public long getEvicted() { return evicted.get(); }
+    public long getRoundTrips() { return roundTrips.get(); }
+    public long getTransactions() { return transactions.get(); }
+
+    @Override
+    public String toString() {
+        long borrows = borrowCount.get();
+        double avgWaitMs = borrows == 0 ? 0 : borrowWaitNanos.get() / 1_000_000.0 / borrows;
+        return String.format("%-10s active=%d idle=%d waiting=%d max=%d borrows=%d avgWait=%.3fms maxWait=%.3fms created=%d evicted=%d",
+                user, getActive(), getIdle(), getWaiting(), maxSize, borrows, avgWaitMs,
+                maxBorrowWaitNanos.get() / 1_000_000.0, created.get(), evicted.get());
+    }
+
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long since;
+
+        private IdleConnection(Connection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void testReusesReturnedConnection() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, "sa", "", 2, 60_000);
+        try (Connection conn = pool.borrow()) {
+            assertEquals(1, pool.getActive());
+        }
+        try (Connection conn = pool.borrow()) {
+            assertTrue(conn.isValid(1));
+        }
+        assertEquals(1, pool.getCreated());
+        assertEquals(0, pool.getActive());
+        assertEquals(1, pool.getIdle());
+        pool.close();
+    }
+
+    @Test
+    void testClosedConnectionRejectsUse() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 60_000);
+        Connection conn = pool.borrow();
+        conn.close();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        assertEquals(0, pool.getActive());
+        pool.close();
+    }
+
+    @Test
+    void testDeadIdleConnectionIsReplaced() throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, "sa", "", 2, 60_000);
+        int session;
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT SESSION_ID()")) {
+            rs.next();
+            session = rs.getInt(1);
+        }
+        // Past the validation window, so the next borrow checks the connection before handing it out
+        Thread.sleep(1_100);
+        try (Connection admin = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = admin.createStatement()) {
+            stmt.execute("CALL ABORT_SESSION(" + session + ")");
+        }
+
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement()) {
+            assertTrue(stmt.execute("SELECT 1"));
+        }
+        assertEquals(1, pool.getEvicted());
+        assertEquals(2, pool.getCreated());
+        pool.close();
+    }
+
+    @Test
+    void testEvictsIdleConnections() throws Exception {
+        ConnectionPool pool = new ConnectionPool(URL, "sa", "", 2, 0);
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        first.close();
+        second.close();
+        assertEquals(2, pool.getIdle());
+        Thread.sleep(5);
+
+        pool.evictIdle();
+
+        assertEquals(0, pool.getIdle());
+        assertEquals(2, pool.getEvicted());
+        pool.close();
+    }
+
+    @Test
+    void testBorrowFailureReleasesPermit() {
+        Semaphore limiter = new Semaphore(1, true);
+        ConnectionPool pool = new ConnectionPool(TestDatabase.UNREACHABLE_URL, "sa", "", 1, 60_000, limiter);
+        assertThrows(SQLException.class, pool::borrow);
+        assertThrows(SQLException.class, pool::borrow);
+        assertEquals(1, limiter.availablePermits());
+        assertEquals(0, pool.getActive());
+    }
+
+    @Test
+    void testWaitingIsCountedPerPool() throws Exception {
+        Semaphore limiter = new Semaphore(1, true);
+        ConnectionPool busy = new ConnectionPool(URL, "sa", "", 1, 60_000, limiter);
+        ConnectionPool other = new ConnectionPool(URL, "sa", "", 1, 60_000, limiter);
+        Connection held = busy.borrow();
+
+        CountDownLatch borrowed = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try (Connection conn = other.borrow()) {
+                borrowed.countDown();
+            } catch (SQLException e) {
+                fail(e);
+            }
+        });
+        waiter.start();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (other.getWaiting() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+        assertEquals(1, other.getWaiting());
+        assertEquals(0, busy.getWaiting());
+
+        held.close();
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+        waiter.join();
+        assertEquals(0, other.getWaiting());
+        busy.close();
+        other.close();
+    }
+
+    @Test
+    void testConnectThrowsWhenDatabaseIsUnreachable() throws SQLException {
+        Database.setUrl(TestDatabase.UNREACHABLE_URL);
+        try {
+            assertThrows(SQLException.class, Database::connect);
+            assertFalse(Database.testConnection());
+        } finally {
+            TestDatabase.create(false);
+        }
+        assertTrue(Database.testConnection());
+    }
+
+    @Test
+    void testPoolSizeIsEnforcedUnderSharedLimiter() throws Exception {
+        Semaphore limiter = new Semaphore(10, true);
+        ConnectionPool pool = new ConnectionPool(URL, "sa", "", 1, 60_000, limiter);
+        Connection held = pool.borrow();
+
+        CountDownLatch borrowed = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try (Connection conn = pool.borrow()) {
+                borrowed.countDown();
+            } catch (SQLException e) {
+                fail(e);
+            }
+        });
+        waiter.start();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.getWaiting() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+        assertEquals(1, pool.getWaiting());
+        assertEquals(9, limiter.availablePermits());
+        held.close();
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+        waiter.join();
+        assertEquals(10, limiter.availablePermits());
+        assertEquals(1, pool.getIdle());
+        pool.close();
+    }
+
+    @Test
+    void testSetUrlRetiresOldPool() throws Exception {
+        TestDatabase.create(false);
+        Connection kept = Database.connect();
+        Connection idle = Database.connect();
+        idle.close();
+        ConnectionPool old = Database.getPools().iterator().next();
+        Connection raw = kept.unwrap(Connection.class);
+        assertEquals(1, old.getIdle());
+
+        TestDatabase.create(false);
+
+        assertTrue(old.isClosed());
+        assertEquals(0, old.getIdle());
+        assertThrows(SQLException.class, old::borrow);
+        // Still usable until returned, then closed instead of pooled
+        try (Statement stmt = kept.createStatement()) {
+            assertTrue(stmt.execute("SELECT 1"));
+        }
+        kept.close();
+        assertTrue(raw.isClosed());
+        assertEquals(0, old.getIdle());
+        assertEquals(0, old.getActive());
+
+        assertTrue(Database.testConnection());
+        assertNotSame(old, Database.getPools().iterator().next());
+    }
+}
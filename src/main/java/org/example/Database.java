@@ -1,31 +1,114 @@
 package org.example;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class Database {
-    private static final String URL = "jdbc:postgresql://localhost:5432/postgres";
+    // Any JDBC URL works, e.g. an embedded database for benchmarks: -Ddb.url=jdbc:h2:mem:bench;MODE=PostgreSQL
+    private static volatile String url = System.getProperty("db.url", "jdbc:postgresql://localhost:5432/postgres");
 
-    private static String activeUser = "postgres";
-    private static String activePassword = "1234";
+    private static final int POOL_SIZE = Integer.getInteger("db.maxConnections", 10);
+    private static final long IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    private static final long EVICTION_INTERVAL_SECONDS = 30;
 
-    public static void setCredentials(String user, String password) {
+    private static volatile String activeUser = "postgres";
+    private static volatile String activePassword = "1234";
+
+    // One pool per database role, so switching between admin and guest does not drop open connections
+    private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+    // Caps connections in use across all roles. With virtual threads the request count is unbounded,
+    // so this is what keeps Postgres from being flooded; extra callers park here until a connection frees up.
+    private static final Semaphore limiter = new Semaphore(POOL_SIZE, true);
+
+    static {
+        if (url.startsWith("jdbc:postgresql:")) {
+            try {
+                Class.forName("org.postgresql.Driver");
+            } catch (ClassNotFoundException e) {
+                System.err.println("[Database] JDBC Driver not found.");
+            }
+        }
+
+        ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        evictor.scheduleAtFixedRate(() -> pools.values().forEach(ConnectionPool::evictIdle),
+                EVICTION_INTERVAL_SECONDS, EVICTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        Metrics.gauge("db_limiter_waiting_threads", "Threads waiting for a connection permit, across all pools.", "",
+                limiter::getQueueLength);
+    }
+
+    public static synchronized void setCredentials(String user, String password) {
         activeUser = user;
         activePassword = password;
         System.out.println("[System] Switched database user to: " + activeUser);
     }
 
-    public static Connection connect() {
-        Connection conn = null;
-        try {
-            Class.forName("org.postgresql.Driver");
-            conn = DriverManager.getConnection(URL, activeUser, activePassword);
+    // Points all new connections at another database. Idle connections to the old one are closed now,
+    // borrowed ones as soon as they are returned.
+    public static synchronized void setUrl(String newUrl) {
+        url = newUrl;
+        List<ConnectionPool> old = new ArrayList<>(pools.values());
+        pools.clear();
+        old.forEach(ConnectionPool::close);
+    }
+
+    public static String getUrl() {
+        return url;
+    }
+
+    // Never returns null: a connection that cannot be made is an SQLException for the caller to handle
+    public static Connection connect() throws SQLException {
+        while (true) {
+            ConnectionPool pool = poolFor(activeUser, activePassword);
+            try {
+                return pool.borrow();
+            } catch (SQLException e) {
+                // Retired by setUrl while we were getting it; the next lookup finds the new pool
+                if (!pool.isClosed()) throw e;
+            }
+        }
+    }
+
+    // Borrows and immediately returns a connection to check the database is reachable
+    public static boolean testConnection() {
+        try (Connection conn = connect()) {
+            return true;
         } catch (SQLException e) {
             System.err.println("[Database] Connection failed: " + e.getMessage());
-        } catch (ClassNotFoundException e) {
-            System.err.println("[Database] JDBC Driver not found.");
+            return false;
+        }
+    }
+
+    private static ConnectionPool poolFor(String user, String password) {
+        String key = user + ":" + password;
+        return pools.computeIfAbsent(key, k -> ConnectionPool.create(url, user, password, POOL_SIZE, IDLE_TIMEOUT_MS, limiter));
+    }
+
+    public static Collection<ConnectionPool> getPools() {
+        return Collections.unmodifiableCollection(pools.values());
+    }
+
+    public static void printPoolStats() {
+        System.out.println("\n--- Connection Pools ---");
+        if (pools.isEmpty()) {
+            System.out.println("No connections opened yet.");
+        }
+        for (ConnectionPool pool : pools.values()) {
+            System.out.println(" * " + pool);
         }
-        return conn;
     }
-}
\ No newline at end of file
+}
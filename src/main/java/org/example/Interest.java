@@ -1,12 +1,30 @@
 package org.example;
 
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class Interest implements Displayable, Comparable<Interest> {
+    // Canonical instance per case-folded name, so profiles share Interest objects
+    private static final Map<String, Interest> REGISTRY = new ConcurrentHashMap<>();
+
     private String name;
 
     public Interest(String name) {
         this.name = name;
     }
 
+    public static Interest of(String name) {
+        if (name == null) return new Interest(null);
+        return REGISTRY.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new Interest(name));
+    }
+
+    // Canonical instance for the name, or null if no profile or list has used it yet
+    public static Interest lookup(String name) {
+        if (name == null) return null;
+        return REGISTRY.get(name.toLowerCase(Locale.ROOT));
+    }
+
     public String getName() {
         return name;
     }
@@ -23,4 +41,4 @@ public class Interest implements Displayable, Comparable<Interest> {
     public String toString() {
         return name;
     }
-}
\ No newline at end of file
+}
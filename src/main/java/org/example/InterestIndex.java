@@ -0,0 +1,75 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Writers are serialized by the owner (ProfileManager's lock); readers need no lock
+public class InterestIndex {
+    // The profiles of one interest in both listing orders, so a filtered page starts at its cursor
+    private static final class Entry {
+        private final NavigableSet<Profile> byUsername = new ConcurrentSkipListSet<>(ProfileQuery.USERNAME_ORDER);
+        private final NavigableSet<Profile> byAge = new ConcurrentSkipListSet<>(ProfileQuery.AGE_ORDER);
+        // Skip list sizes are not constant time
+        private final AtomicInteger count = new AtomicInteger();
+    }
+
+    // Canonical interest -> profiles that have it as primary interest.
+    // A profile must be taken out before its username or age changes.
+    private final Map<Interest, Entry> profilesByInterest = new ConcurrentHashMap<>();
+
+    private static Interest canonical(Profile p) {
+        return Interest.of(p.getPrimaryInterest().getName());
+    }
+
+    public void add(Profile p) {
+        if (p.getPrimaryInterest().getName() == null) return;
+        Entry entry = profilesByInterest.computeIfAbsent(canonical(p), k -> new Entry());
+        if (entry.byUsername.add(p)) {
+            entry.byAge.add(p);
+            entry.count.incrementAndGet();
+        }
+    }
+
+    public void remove(Profile p) {
+        if (p.getPrimaryInterest().getName() == null) return;
+        Entry entry = profilesByInterest.get(canonical(p));
+        if (entry != null && entry.byUsername.remove(p)) {
+            entry.byAge.remove(p);
+            entry.count.decrementAndGet();
+        }
+    }
+
+    private Entry entry(String interestName) {
+        Interest interest = Interest.lookup(interestName);
+        return interest == null ? null : profilesByInterest.get(interest);
+    }
+
+    // In username order
+    public NavigableSet<Profile> find(String interestName) {
+        Entry entry = entry(interestName);
+        return entry == null ? Collections.emptyNavigableSet() : entry.byUsername;
+    }
+
+    // In age order, then username
+    public NavigableSet<Profile> findByAge(String interestName) {
+        Entry entry = entry(interestName);
+        return entry == null ? Collections.emptyNavigableSet() : entry.byAge;
+    }
+
+    // Aged minAge..maxAge, clamped to 0-150 like AgeIndex, in age order
+    public NavigableSet<Profile> findByAge(String interestName, int minAge, int maxAge) {
+        minAge = Math.max(minAge, AgeIndex.MIN_AGE);
+        maxAge = Math.min(maxAge, AgeIndex.MAX_AGE);
+        if (minAge > maxAge) return Collections.emptyNavigableSet();
+        // The empty username sorts first, so these bound every profile of the two ages
+        return findByAge(interestName).subSet(new Profile("", minAge, null, null), true,
+                new Profile("", maxAge + 1, null, null), false);
+    }
+
+    public int count(String interestName) {
+        Entry entry = entry(interestName);
+        return entry == null ? 0 : entry.count.get();
+    }
+}
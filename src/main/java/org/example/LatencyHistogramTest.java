@@ -0,0 +1,60 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.quantileNanos(0.5));
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    void testBucketsBoundValuesWithinSixPercent() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value));
+            assertTrue(upper >= value, value + " above its bucket bound " + upper);
+            assertTrue(upper - value <= value / 16, value + " too far below its bucket bound " + upper);
+        }
+        // Below 16 every value has its own bucket
+        for (long value = 0; value < 16; value++) {
+            assertEquals(value, LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value)));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testQuantilesOfKnownValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 ms, 2 ms, ... 1000 ms
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500L * 1_000_000L, histogram.getSumNanos());
+        assertBetween(500_000_000L, histogram.quantileNanos(0.5));
+        assertBetween(990_000_000L, histogram.quantileNanos(0.99));
+        assertBetween(1_000_000_000L, histogram.quantileNanos(1.0));
+        assertBetween(1_000_000L, histogram.quantileNanos(0.0));
+    }
+
+    @Test
+    void testNegativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.quantileNanos(0.99));
+        assertEquals(0, histogram.getSumNanos());
+    }
+
+    // The reported value is the upper bound of the exact value's bucket
+    private static void assertBetween(long exact, long reported) {
+        assertTrue(reported >= exact && reported <= exact + exact / 16, exact + " reported as " + reported);
+    }
+}
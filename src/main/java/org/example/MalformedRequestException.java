@@ -0,0 +1,8 @@
+package org.example;
+
+public class MalformedRequestException extends Exception {
+
+    public MalformedRequestException(String message) {
+        super(message);
+    }
+}
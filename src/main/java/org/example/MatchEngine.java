@@ -0,0 +1,165 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Scores candidates on shared interest, whether each side's age preference fits the other, and age distance,
+// keeping only the best k in a bounded min-heap instead of sorting every candidate.
+public class MatchEngine {
+    private static final double SHARED_INTEREST_WEIGHT = 3.0;
+    private static final double SEEKER_FIT_WEIGHT = 2.0;
+    private static final double CANDIDATE_FIT_WEIGHT = 2.0;
+    private static final double AGE_DISTANCE_WEIGHT = 1.0;
+    public static final int ADULT_AGE = 18;
+    // Best score of a candidate without the seeker's interest: both fits and the full age-distance term
+    private static final double MAX_SCORE_WITHOUT_SHARED_INTEREST =
+            SEEKER_FIT_WEIGHT + CANDIDATE_FIT_WEIGHT + AGE_DISTANCE_WEIGHT;
+
+    // Exported on /api/metrics per caller; both are lock-free, so parallel batch jobs recording every query
+    // do not contend on one cache line
+    private final LatencyHistogram latency;
+    private final LongAdder candidatesScored;
+
+    public MatchEngine() {
+        this("api");
+    }
+
+    // caller labels the series, e.g. "api" for requests and "batch" for BatchMatchJob
+    public MatchEngine(String caller) {
+        String labels = Metrics.label("caller", caller);
+        latency = Metrics.histogram("match_duration_seconds", "Time to find the top matches for one seeker.", labels);
+        candidatesScored = Metrics.counter("match_candidates_scored_total", "Candidates scored by top-match queries.",
+                labels);
+    }
+
+    public static class Match {
+        private final Profile profile;
+        private final double score;
+
+        public Match(Profile profile, double score) {
+            this.profile = profile;
+            this.score = score;
+        }
+
+        public Profile getProfile() { return profile; }
+        public double getScore() { return score; }
+    }
+
+    // Runs without the manager lock. A profile whose age changes during the call may be met in both of its
+    // buckets, so a candidate already in the top list is not added twice.
+    public List<Match> topMatches(Profile seeker, AgeIndex ageIndex, int k) {
+        return topMatches(seeker, ageIndex, null, k);
+    }
+
+    // With an interest index, candidates sharing the seeker's interest are scored first, and the age scan is
+    // skipped once the k best all score at least what a candidate without it could reach. Both indexes must
+    // hold the same profiles and not change during the call, as in BatchMatchJob.
+    public List<Match> topMatches(Profile seeker, AgeIndex ageIndex, InterestIndex interestIndex, int k) {
+        long start = System.nanoTime();
+        PriorityQueue<Match> best = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Match::getScore));
+        long[] scored = new long[1];
+
+        // Only ages the seeker accepts and of the seeker's own age group can fit
+        int minAge = AgeIndex.MIN_AGE;
+        int maxAge = AgeIndex.MAX_AGE;
+        if (!seeker.getPreferences().isEmpty()) {
+            minAge = Integer.MAX_VALUE;
+            maxAge = Integer.MIN_VALUE;
+            for (MatchPreference pref : seeker.getPreferences()) {
+                minAge = Math.min(minAge, pref.getMinAge());
+                maxAge = Math.max(maxAge, pref.getMaxAge());
+            }
+        }
+        if (seeker.getAge() >= ADULT_AGE) minAge = Math.max(minAge, ADULT_AGE);
+        else maxAge = Math.min(maxAge, ADULT_AGE - 1);
+
+        String interest = seeker.getPrimaryInterest().getName();
+        boolean sharedFirst = interestIndex != null && interest != null;
+        Consumer<Profile> consider = candidate -> {
+            if (candidate == seeker || !sameAgeGroup(seeker, candidate)) return;
+            scored[0]++;
+            double score = score(seeker, candidate);
+            if (best.size() < k) {
+                if (!contains(best, candidate)) best.add(new Match(candidate, score));
+            } else if (score > best.peek().getScore() && !contains(best, candidate)) {
+                best.poll();
+                best.add(new Match(candidate, score));
+            }
+        };
+
+        if (k > 0) {
+            if (sharedFirst) {
+                interestIndex.findByAge(interest, minAge, maxAge).forEach(consider);
+            }
+            if (!sharedFirst || best.size() < k || best.peek().getScore() < MAX_SCORE_WITHOUT_SHARED_INTEREST) {
+                ageIndex.forEachInRange(minAge, maxAge, candidate -> {
+                    if (sharedFirst && sameInterest(seeker, candidate)) return;
+                    consider.accept(candidate);
+                });
+            }
+        }
+
+        List<Match> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Match::getScore).reversed());
+        record(System.nanoTime() - start, scored[0]);
+        return result;
+    }
+
+    private static boolean contains(PriorityQueue<Match> best, Profile candidate) {
+        for (Match match : best) {
+            if (match.getProfile() == candidate) return true;
+        }
+        return false;
+    }
+
+    // Adults are only matched with adults and minors with minors. Every way of finding matches (top matches,
+    // range matches and the mutual-match graph) applies this one rule.
+    public static boolean sameAgeGroup(Profile a, Profile b) {
+        return (a.getAge() >= ADULT_AGE) == (b.getAge() >= ADULT_AGE);
+    }
+
+    public static double score(Profile seeker, Profile candidate) {
+        double score = 0;
+        if (sameInterest(seeker, candidate)) score += SHARED_INTEREST_WEIGHT;
+        if (accepts(seeker, candidate.getAge())) score += SEEKER_FIT_WEIGHT;
+        if (accepts(candidate, seeker.getAge())) score += CANDIDATE_FIT_WEIGHT;
+        score += AGE_DISTANCE_WEIGHT / (1 + Math.abs(seeker.getAge() - candidate.getAge()));
+        return score;
+    }
+
+    private static boolean sameInterest(Profile a, Profile b) {
+        String nameA = a.getPrimaryInterest().getName();
+        String nameB = b.getPrimaryInterest().getName();
+        return nameA != null && nameA.equalsIgnoreCase(nameB);
+    }
+
+    // A profile without preferences accepts any age
+    static boolean accepts(Profile p, int age) {
+        List<MatchPreference> prefs = p.getPreferences();
+        if (prefs.isEmpty()) return true;
+        for (MatchPreference pref : prefs) {
+            if (age >= pref.getMinAge() && age <= pref.getMaxAge()) return true;
+        }
+        return false;
+    }
+
+    private void record(long nanos, long candidates) {
+        latency.record(nanos);
+        candidatesScored.add(candidates);
+    }
+
+    public LatencyHistogram getLatency() { return latency; }
+    public long getCandidatesScored() { return candidatesScored.sum(); }
+
+    // Read from the exported series, which engines of the same caller share
+    @Override
+    public String toString() {
+        long count = latency.getCount();
+        double avgMs = count == 0 ? 0 : latency.getSumNanos() / 1_000_000.0 / count;
+        double avgCandidates = count == 0 ? 0 : (double) candidatesScored.sum() / count;
+        return String.format("queries=%d avg=%.3fms p50=%.3fms p99=%.3fms avgCandidates=%.0f",
+                count, avgMs, latency.quantileNanos(0.5) / 1_000_000.0, latency.quantileNanos(0.99) / 1_000_000.0,
+                avgCandidates);
+    }
+}
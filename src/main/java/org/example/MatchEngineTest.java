@@ -0,0 +1,78 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchEngineTest {
+
+    private static Profile profile(String username, int age, int... range) {
+        List<MatchPreference> prefs = new ArrayList<>();
+        if (range.length == 2) prefs.add(new MatchPreference(range[0], range[1]));
+        return new Profile(username, age, Interest.of("Hiking"), prefs);
+    }
+
+    @Test
+    void testQueriesAreExportedAsMetrics() {
+        AgeIndex ages = new AgeIndex();
+        Profile alice = profile("alice", 30);
+        ages.add(alice);
+        ages.add(profile("bob", 31));
+        ages.add(profile("carol", 32));
+
+        MatchEngine engine = new MatchEngine("metrics-test");
+        engine.topMatches(alice, ages, 1);
+        engine.topMatches(alice, ages, 1);
+
+        assertEquals(2, engine.getLatency().getCount());
+        assertEquals(4, engine.getCandidatesScored());
+        String scrape = Metrics.scrape();
+        assertTrue(scrape.contains("match_duration_seconds_count{caller=\"metrics-test\"} 2\n"), scrape);
+        assertTrue(scrape.contains("match_candidates_scored_total{caller=\"metrics-test\"} 4\n"), scrape);
+    }
+
+    @Test
+    void testMinorsAndAdultsAreNeverMatched() {
+        AgeIndex ages = new AgeIndex();
+        MutualMatchGraph graph = new MutualMatchGraph();
+        Profile teen = profile("teen", 16);
+        Profile friend = profile("friend", 17);
+        Profile adult = profile("adult", 18);
+        Profile older = profile("older", 40);
+        List<Profile> all = List.of(teen, friend, adult, older);
+        all.forEach(ages::add);
+        all.forEach(p -> graph.rebuild(p, ages));
+        MatchEngine engine = new MatchEngine("age-group-test");
+
+        for (Profile seeker : all) {
+            for (MatchEngine.Match match : engine.topMatches(seeker, ages, 10)) {
+                assertTrue(MatchEngine.sameAgeGroup(seeker, match.getProfile()),
+                        seeker.getUsername() + " matched " + match.getProfile().getUsername());
+            }
+        }
+        assertEquals(List.of(friend), profilesOf(engine.topMatches(teen, ages, 10)));
+        assertEquals(Set.of(friend), graph.getMatches(teen));
+        assertEquals(List.of(older), profilesOf(engine.topMatches(adult, ages, 10)));
+        assertEquals(Set.of(older), graph.getMatches(adult));
+    }
+
+    @Test
+    void testMinorSeekerGetsNoAdultsFromManager() {
+        ProfileManager manager = new ProfileManager();
+        Profile teen = profile("teen", 16, 10, 50);
+        manager.addProfile(teen);
+        manager.addProfile(profile("friend", 15));
+        manager.addProfile(profile("adult", 25));
+
+        assertEquals(List.of(manager.findProfile("friend")), manager.findMatches(teen, teen.getPreferences().get(0)));
+        assertEquals(List.of(manager.findProfile("friend")), profilesOf(manager.findTopMatches(teen, 5)));
+    }
+
+    private static List<Profile> profilesOf(List<MatchEngine.Match> matches) {
+        List<Profile> profiles = new ArrayList<>();
+        for (MatchEngine.Match match : matches) profiles.add(match.getProfile());
+        return profiles;
+    }
+}
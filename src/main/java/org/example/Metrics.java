@@ -0,0 +1,106 @@
+package org.example;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Process-wide metrics registry rendered in the Prometheus text format by /api/metrics.
+// A series is a metric name plus a label string such as route="/api/profiles",method="GET".
+// Histograms are exposed as summaries (quantiles, _sum and _count) in seconds.
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private enum Type { SUMMARY, COUNTER, GAUGE }
+
+    private static class Family {
+        private final String help;
+        private final Type type;
+        // Label string -> LatencyHistogram, LongAdder or Supplier<Number>
+        private final Map<String, Object> series = new ConcurrentSkipListMap<>();
+
+        private Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static final Map<String, Family> families = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    private static Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(help, type));
+        if (family.type != type) throw new IllegalArgumentException(name + " is already a " + family.type);
+        return family;
+    }
+
+    public static LatencyHistogram histogram(String name, String help, String labels) {
+        return (LatencyHistogram) family(name, help, Type.SUMMARY).series
+                .computeIfAbsent(labels, l -> new LatencyHistogram());
+    }
+
+    public static LongAdder counter(String name, String help, String labels) {
+        return (LongAdder) family(name, help, Type.COUNTER).series.computeIfAbsent(labels, l -> new LongAdder());
+    }
+
+    // Read on every scrape; registering the same series again replaces the supplier
+    public static void gauge(String name, String help, String labels, Supplier<Number> value) {
+        family(name, help, Type.GAUGE).series.put(labels, value);
+    }
+
+    public static void counterFunction(String name, String help, String labels, Supplier<Number> value) {
+        family(name, help, Type.COUNTER).series.put(labels, value);
+    }
+
+    // Label value with backslash, quote and newline escaped
+    public static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type.name().toLowerCase()).append('\n');
+
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                String labels = series.getKey();
+                Object value = series.getValue();
+                if (value instanceof LatencyHistogram) {
+                    LatencyHistogram histogram = (LatencyHistogram) value;
+                    String prefix = labels.isEmpty() ? "" : labels + ",";
+                    for (double q : QUANTILES) {
+                        sample(out, name, prefix + "quantile=\"" + q + "\"", histogram.quantileNanos(q) / 1e9);
+                    }
+                    sample(out, name + "_sum", labels, histogram.getSumNanos() / 1e9);
+                    sample(out, name + "_count", labels, histogram.getCount());
+                } else if (value instanceof LongAdder) {
+                    sample(out, name, labels, ((LongAdder) value).sum());
+                } else {
+                    @SuppressWarnings("unchecked")
+                    Number number = ((Supplier<Number>) value).get();
+                    sample(out, name, labels, number.doubleValue());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+}
@@ -0,0 +1,97 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// For each profile, the profiles whose preferences are mutually satisfied: each one's age fits the other's
+// preferences. The relation is symmetric, so it is kept as an undirected graph. A changed profile is queued
+// and only its own edges are recomputed, from the age buckets its preferences cover.
+public class MutualMatchGraph {
+    // Rough heap cost of one set entry (node + table slot) and of one per-profile set, for footprint reporting
+    private static final int BYTES_PER_EDGE_ENTRY = 40;
+    private static final int BYTES_PER_PROFILE = 120;
+
+    private final Map<Profile, Set<Profile>> neighbors = new ConcurrentHashMap<>();
+    private final BlockingQueue<Profile> dirty = new LinkedBlockingQueue<>();
+    private final Set<Profile> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong edges = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    public static boolean isMutual(Profile a, Profile b) {
+        if (a == b) return false;
+        if (!MatchEngine.sameAgeGroup(a, b)) return false;
+        return MatchEngine.accepts(a, b.getAge()) && MatchEngine.accepts(b, a.getAge());
+    }
+
+    // Queues a profile whose age or preferences changed; duplicates collapse into one rebuild
+    public void markDirty(Profile p) {
+        if (pending.add(p)) dirty.add(p);
+    }
+
+    public Profile takeDirty() throws InterruptedException {
+        Profile p = dirty.take();
+        pending.remove(p);
+        return p;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Caller must hold the ProfileManager lock so the age index does not change underneath
+    public void rebuild(Profile p, AgeIndex ageIndex) {
+        remove(p);
+        Set<Profile> own = ConcurrentHashMap.newKeySet();
+        neighbors.put(p, own);
+
+        int minAge = AgeIndex.MIN_AGE;
+        int maxAge = AgeIndex.MAX_AGE;
+        if (!p.getPreferences().isEmpty()) {
+            minAge = Integer.MAX_VALUE;
+            maxAge = Integer.MIN_VALUE;
+            for (MatchPreference pref : p.getPreferences()) {
+                minAge = Math.min(minAge, pref.getMinAge());
+                maxAge = Math.max(maxAge, pref.getMaxAge());
+            }
+        }
+        ageIndex.forEachInRange(minAge, maxAge, candidate -> {
+            if (isMutual(p, candidate)) {
+                own.add(candidate);
+                neighbors.computeIfAbsent(candidate, k -> ConcurrentHashMap.newKeySet()).add(p);
+                edges.incrementAndGet();
+            }
+        });
+        rebuilds.incrementAndGet();
+    }
+
+    public void remove(Profile p) {
+        Set<Profile> old = neighbors.remove(p);
+        if (old == null) return;
+        for (Profile other : old) {
+            Set<Profile> theirs = neighbors.get(other);
+            if (theirs != null) theirs.remove(p);
+        }
+        edges.addAndGet(-old.size());
+    }
+
+    public Set<Profile> getMatches(Profile p) {
+        Set<Profile> matches = neighbors.get(p);
+        return matches == null ? Collections.emptySet() : Collections.unmodifiableSet(matches);
+    }
+
+    public long getEdgeCount() { return edges.get(); }
+    public long getRebuildCount() { return rebuilds.get(); }
+
+    public long estimateBytes() {
+        return neighbors.size() * (long) BYTES_PER_PROFILE + 2 * edges.get() * BYTES_PER_EDGE_ENTRY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("profiles=%d edges=%d pending=%d rebuilds=%d footprint=~%.1fMB",
+                neighbors.size(), edges.get(), pending.size(), rebuilds.get(), estimateBytes() / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,118 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutualMatchGraphTest {
+
+    private static Profile profile(String username, int age, int... ranges) {
+        List<MatchPreference> prefs = new ArrayList<>();
+        for (int i = 0; i < ranges.length; i += 2) {
+            prefs.add(new MatchPreference(ranges[i], ranges[i + 1]));
+        }
+        return new Profile(username, age, Interest.of("Hiking"), prefs);
+    }
+
+    // Every edge checked against isMutual over all pairs, in both directions
+    private static void assertConsistent(MutualMatchGraph graph, List<Profile> profiles) {
+        long edges = 0;
+        for (Profile p : profiles) {
+            Set<Profile> expected = new HashSet<>();
+            for (Profile other : profiles) {
+                if (MutualMatchGraph.isMutual(p, other)) expected.add(other);
+            }
+            assertEquals(expected, new HashSet<>(graph.getMatches(p)), p.getUsername());
+            edges += expected.size();
+        }
+        assertEquals(edges / 2, graph.getEdgeCount());
+    }
+
+    @Test
+    void testEdgesAreSymmetric() {
+        AgeIndex ages = new AgeIndex();
+        MutualMatchGraph graph = new MutualMatchGraph();
+        Profile alice = profile("alice", 30, 25, 35);
+        Profile bob = profile("bob", 28, 30, 40);
+        Profile carol = profile("carol", 50, 20, 60);
+        Profile teen = profile("teen", 16);
+        List<Profile> all = List.of(alice, bob, carol, teen);
+        all.forEach(ages::add);
+        all.forEach(p -> graph.rebuild(p, ages));
+
+        assertEquals(Set.of(bob), graph.getMatches(alice));
+        assertEquals(Set.of(alice), graph.getMatches(bob));
+        assertTrue(graph.getMatches(carol).isEmpty());
+        // Adults are never matched with minors, even without preferences
+        assertTrue(graph.getMatches(teen).isEmpty());
+        assertConsistent(graph, all);
+    }
+
+    @Test
+    void testIncrementalRebuildsMatchFullRecompute() {
+        Random random = new Random(7);
+        AgeIndex ages = new AgeIndex();
+        MutualMatchGraph graph = new MutualMatchGraph();
+        List<Profile> profiles = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int min = 18 + random.nextInt(40);
+            Profile p = profile("user" + i, 14 + random.nextInt(60), min, min + random.nextInt(20));
+            profiles.add(p);
+            ages.add(p);
+        }
+        profiles.forEach(p -> graph.rebuild(p, ages));
+        assertConsistent(graph, profiles);
+
+        for (int i = 0; i < 500; i++) {
+            Profile p = profiles.get(random.nextInt(profiles.size()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    ages.remove(p);
+                    p.setAge(14 + random.nextInt(60));
+                    ages.add(p);
+                    break;
+                case 1:
+                    int min = 18 + random.nextInt(40);
+                    p.getPreferences().add(new MatchPreference(min, min + random.nextInt(20)));
+                    break;
+                default:
+                    p.getPreferences().clear();
+            }
+            graph.markDirty(p);
+            // A profile changed twice before the builder gets to it is rebuilt once
+            graph.markDirty(p);
+            assertEquals(1, graph.getPendingCount());
+            try {
+                graph.rebuild(graph.takeDirty(), ages);
+            } catch (InterruptedException e) {
+                fail(e);
+            }
+        }
+        assertConsistent(graph, profiles);
+    }
+
+    @Test
+    void testRemoveDropsBothDirections() {
+        AgeIndex ages = new AgeIndex();
+        MutualMatchGraph graph = new MutualMatchGraph();
+        Profile alice = profile("alice", 30);
+        Profile bob = profile("bob", 31);
+        Profile carol = profile("carol", 32);
+        List<Profile> all = new ArrayList<>(List.of(alice, bob, carol));
+        all.forEach(ages::add);
+        all.forEach(p -> graph.rebuild(p, ages));
+        assertEquals(3, graph.getEdgeCount());
+
+        ages.remove(bob);
+        graph.remove(bob);
+        all.remove(bob);
+
+        assertEquals(Set.of(carol), graph.getMatches(alice));
+        assertTrue(graph.getMatches(bob).isEmpty());
+        assertConsistent(graph, all);
+    }
+}
@@ -2,11 +2,12 @@ package org.example;
 import java.util.List;
 
 public class Profile implements Comparable<Profile> {
-    private String username;
-    private int age;
+    // Volatile so lock-free readers (API GETs, saves) always see the latest complete value
+    private volatile String username;
+    private volatile int age;
 
     private Interest primaryInterest;
-    private List<MatchPreference> preferences;
+    private volatile List<MatchPreference> preferences;
 
     public Profile(String username, int age, Interest primaryInterest, List<MatchPreference> preferences) {
         this.username = username;
@@ -21,6 +22,7 @@ public class Profile implements Comparable<Profile> {
     public void setUsername(String username) { this.username = username; }
 
     public List<MatchPreference> getPreferences() { return preferences; }
+    public void setPreferences(List<MatchPreference> preferences) { this.preferences = preferences; }
 
     public void setAge(int age) {
         this.age = age;
@@ -28,12 +30,12 @@ public class Profile implements Comparable<Profile> {
 
     @Override
     public int compareTo(Profile other) {
-        return this.username.compareTo(other.getUsername());
+        return this.getUsername().compareTo(other.getUsername());
     }
 
     @Override
     public String toString() {
         return String.format("%-15s (Age: %d) | Primary: %s",
-                username, age, primaryInterest.getName());
+                getUsername(), getAge(), getPrimaryInterest().getName());
     }
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Recent profile changes for the /api/profiles/stream server-sent events endpoint. Every change gets the next
+// sequence number and is encoded once, as a complete SSE frame, into a fixed ring shared by all subscribers;
+// each subscriber only keeps the sequence number it has sent up to. Publishing never waits for subscribers:
+// one that falls a whole ring behind has missed events and must start over from a fresh listing.
+//
+// Event ids are "<stream>-<sequence>", where the stream part changes on every start, so a client resuming
+// with an id from before a restart is told to reset instead of silently missing changes.
+public class ProfileChangeFeed {
+    public static final String CREATED = "created";
+    public static final String RENAMED = "renamed";
+    public static final String AGE_CHANGED = "age-changed";
+    public static final String DELETED = "deleted";
+    // Sent to a subscriber whose position is gone from the ring (or unknown); it should reload the full list
+    public static final String RESET = "reset";
+
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("feed.bufferSize", 4096);
+
+    static final class Event {
+        final long sequence;
+        final byte[] frame;
+
+        private Event(long sequence, byte[] frame) {
+            this.sequence = sequence;
+            this.frame = frame;
+        }
+    }
+
+    private final Event[] ring;
+    private final String streamId = Long.toString(System.currentTimeMillis(), 36);
+    // A ReentrantLock rather than synchronized, so subscribers waiting on virtual threads do not pin carriers
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    // Guarded by lock
+    private long lastSequence;
+
+    private final LongAdder events = new LongAdder();
+
+    public ProfileChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ProfileChangeFeed(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        this.ring = new Event[capacity];
+    }
+
+    public void created(Profile p) {
+        publish(CREATED, encode(w -> w.writeProfile(p)));
+    }
+
+    public void renamed(String oldUsername, Profile p) {
+        publish(RENAMED, encode(w -> {
+            w.writeRaw(FROM_FIELD);
+            w.writeString(oldUsername);
+            w.writeRaw(PROFILE_FIELD);
+            w.writeProfile(p);
+            w.writeRaw(END_OBJECT);
+        }));
+    }
+
+    public void ageChanged(Profile p) {
+        publish(AGE_CHANGED, encode(w -> w.writeProfile(p)));
+    }
+
+    public void deleted(String username) {
+        publish(DELETED, encode(w -> {
+            w.writeRaw(USERNAME_FIELD);
+            w.writeString(username);
+            w.writeRaw(END_OBJECT);
+        }));
+    }
+
+    // Everything may have changed (e.g. a reload from the database): every subscriber is told to reset
+    public void resetAll() {
+        publish(RESET, EMPTY_OBJECT);
+    }
+
+    private static final byte[] FROM_FIELD = ascii("{\"from\":");
+    private static final byte[] PROFILE_FIELD = ascii(",\"profile\":");
+    private static final byte[] USERNAME_FIELD = ascii("{\"username\":");
+    private static final byte[] END_OBJECT = ascii("}");
+    private static final byte[] EMPTY_OBJECT = ascii("{}");
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private interface Body {
+        void write(ProfileJsonWriter writer) throws IOException;
+    }
+
+    private static byte[] encode(Body body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try {
+            ProfileJsonWriter writer = new ProfileJsonWriter(out, 256);
+            body.write(writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Callers publish while holding the ProfileManager lock, so sequence order is the order of the changes
+    private void publish(String type, byte[] data) {
+        lock.lock();
+        try {
+            long sequence = ++lastSequence;
+            ring[(int) (sequence % ring.length)] = new Event(sequence, frame(type, eventId(sequence), data));
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        events.increment();
+    }
+
+    private static byte[] frame(String type, String id, byte[] data) {
+        byte[] head = ("id: " + id + "\nevent: " + type + "\ndata: ").getBytes(StandardCharsets.US_ASCII);
+        byte[] frame = new byte[head.length + data.length + 2];
+        System.arraycopy(head, 0, frame, 0, head.length);
+        System.arraycopy(data, 0, frame, head.length, data.length);
+        frame[frame.length - 2] = '\n';
+        frame[frame.length - 1] = '\n';
+        return frame;
+    }
+
+    // The frame sent in place of missed events; it carries the current id so the client resumes from there
+    byte[] resetFrame(long sequence) {
+        return frame(RESET, eventId(sequence), EMPTY_OBJECT);
+    }
+
+    public String eventId(long sequence) {
+        return streamId + "-" + sequence;
+    }
+
+    // Sequence number of an id from this stream, or -1 if it is from an earlier start or not an id at all
+    public long parseEventId(String id) {
+        String prefix = streamId + "-";
+        if (id == null || !id.startsWith(prefix)) return -1;
+        try {
+            long sequence = Long.parseLong(id.substring(prefix.length()));
+            return sequence >= 0 && sequence <= getLastSequence() ? sequence : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getLastEventId() {
+        return eventId(getLastSequence());
+    }
+
+    // True if the events after this sequence number are all still in the ring
+    public boolean canResumeAfter(long sequence) {
+        lock.lock();
+        try {
+            return sequence >= 0 && sequence <= lastSequence && lastSequence - sequence <= ring.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Adds the events after the given sequence number to out, waiting up to the timeout for the first one.
+    // Returns the sequence number read up to (unchanged on timeout), or -1 if the subscriber fell so far behind
+    // that some of its events were overwritten.
+    long read(long after, List<Event> out, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (lastSequence == after) {
+                if (nanos <= 0) return after;
+                nanos = published.awaitNanos(nanos);
+            }
+            if (lastSequence - after > ring.length) return -1;
+            for (long s = after + 1; s <= lastSequence; s++) {
+                out.add(ring[(int) (s % ring.length)]);
+            }
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public long getEventCount() {
+        return events.sum();
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileChangeFeedTest {
+
+    private static Profile profile(String username) {
+        return new Profile(username, 30, Interest.of("Hiking"), new ArrayList<>());
+    }
+
+    private static String text(ProfileChangeFeed.Event event) {
+        return new String(event.frame, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testResumesAfterLastEventId() throws Exception {
+        ProfileChangeFeed feed = new ProfileChangeFeed(4);
+        feed.created(profile("alice"));
+        String lastSeen = feed.getLastEventId();
+        feed.created(profile("bob"));
+        feed.deleted("alice");
+
+        long after = feed.parseEventId(lastSeen);
+        assertEquals(1, after);
+        assertTrue(feed.canResumeAfter(after));
+
+        List<ProfileChangeFeed.Event> events = new ArrayList<>();
+        assertEquals(3, feed.read(after, events, 0, TimeUnit.MILLISECONDS));
+        assertEquals(2, events.size());
+        assertTrue(text(events.get(0)).startsWith("id: " + feed.eventId(2) + "\nevent: created\n"));
+        assertTrue(text(events.get(0)).contains("\"bob\""));
+        assertTrue(text(events.get(1)).startsWith("id: " + feed.eventId(3) + "\nevent: deleted\n"));
+        assertTrue(text(events.get(1)).endsWith("\n\n"));
+    }
+
+    @Test
+    void testReadTimesOutWithoutNewEvents() throws Exception {
+        ProfileChangeFeed feed = new ProfileChangeFeed(4);
+        feed.created(profile("alice"));
+
+        List<ProfileChangeFeed.Event> events = new ArrayList<>();
+        assertEquals(1, feed.read(1, events, 10, TimeUnit.MILLISECONDS));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void testRejectsIdsFromOtherStreamsOrTheFuture() {
+        ProfileChangeFeed feed = new ProfileChangeFeed(4);
+        feed.created(profile("alice"));
+
+        assertEquals(-1, feed.parseEventId(null));
+        assertEquals(-1, feed.parseEventId("0-1"));
+        assertEquals(-1, feed.parseEventId(feed.eventId(2)));
+        assertEquals(-1, feed.parseEventId(feed.getLastEventId() + "x"));
+        assertEquals(0, feed.parseEventId(feed.eventId(0)));
+    }
+
+    @Test
+    void testSubscriberThatFellBehindMustReset() throws Exception {
+        ProfileChangeFeed feed = new ProfileChangeFeed(2);
+        for (int i = 0; i < 5; i++) {
+            feed.created(profile("user" + i));
+        }
+
+        assertFalse(feed.canResumeAfter(2));
+        assertTrue(feed.canResumeAfter(3));
+        List<ProfileChangeFeed.Event> events = new ArrayList<>();
+        assertEquals(-1, feed.read(2, events, 0, TimeUnit.MILLISECONDS));
+        assertTrue(events.isEmpty());
+
+        String reset = new String(feed.resetFrame(feed.getLastSequence()), StandardCharsets.UTF_8);
+        assertEquals("id: " + feed.eventId(5) + "\nevent: reset\ndata: {}\n\n", reset);
+    }
+}
@@ -0,0 +1,84 @@
+package org.example;
+
+import java.util.*;
+
+public class ProfileChangeLog {
+    private Map<String, Profile> upserts = new LinkedHashMap<>();
+    private Set<String> deletes = new LinkedHashSet<>();
+
+    // Profile created or changed, row has to be (re)written on next save
+    public synchronized void recordUpsert(Profile p) {
+        upserts.put(p.getUsername(), p);
+    }
+
+    // Row has to be removed on next save
+    public synchronized void recordDelete(String username) {
+        upserts.remove(username);
+        deletes.add(username);
+    }
+
+    // Username is the primary key, so a rename is a delete of the old row plus an insert of the new one
+    public synchronized void recordRename(String oldUsername, Profile p) {
+        recordDelete(oldUsername);
+        recordUpsert(p);
+    }
+
+    public synchronized boolean isEmpty() {
+        return upserts.isEmpty() && deletes.isEmpty();
+    }
+
+    public synchronized void clear() {
+        upserts = new LinkedHashMap<>();
+        deletes = new LinkedHashSet<>();
+    }
+
+    // Hands the pending changes to the caller and starts a fresh log
+    public synchronized Batch drain() {
+        Batch batch = new Batch(upserts, deletes);
+        clear();
+        return batch;
+    }
+
+    // Copy of the pending changes, leaving the log as it is
+    public synchronized Batch peek() {
+        return new Batch(new LinkedHashMap<>(upserts), new LinkedHashSet<>(deletes));
+    }
+
+    // Puts back a batch that failed to save, without overriding anything recorded since it was drained
+    public synchronized void restore(Batch batch) {
+        for (String username : batch.getDeletes()) {
+            if (!upserts.containsKey(username)) deletes.add(username);
+        }
+        for (Map.Entry<String, Profile> entry : batch.upserts.entrySet()) {
+            if (!deletes.contains(entry.getKey())) upserts.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public static class Batch {
+        private final Map<String, Profile> upserts;
+        private final Set<String> deletes;
+
+        private Batch(Map<String, Profile> upserts, Set<String> deletes) {
+            this.upserts = upserts;
+            this.deletes = deletes;
+        }
+
+        public Collection<Profile> getUpserts() { return upserts.values(); }
+        public Set<String> getDeletes() { return deletes; }
+
+        // Every row that gets removed before the inserts run
+        public Set<String> getTouchedUsernames() {
+            Set<String> touched = new LinkedHashSet<>(deletes);
+            touched.addAll(upserts.keySet());
+            return touched;
+        }
+
+        public boolean isEmpty() {
+            return upserts.isEmpty() && deletes.isEmpty();
+        }
+
+        public int size() {
+            return upserts.size() + deletes.size();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileChangeLogTest {
+
+    private static Profile profile(String username, int age) {
+        return new Profile(username, age, Interest.of("Hiking"), new ArrayList<>());
+    }
+
+    @Test
+    void testDrainHandsOverPendingChangesAndEmptiesLog() {
+        ProfileChangeLog log = new ProfileChangeLog();
+        log.recordUpsert(profile("alice", 30));
+        log.recordRename("bob", profile("robert", 40));
+
+        ProfileChangeLog.Batch batch = log.drain();
+
+        assertTrue(log.isEmpty());
+        assertEquals(3, batch.size());
+        assertEquals(Set.of("bob"), batch.getDeletes());
+        assertEquals(Set.of("bob", "alice", "robert"), batch.getTouchedUsernames());
+        assertTrue(log.drain().isEmpty());
+    }
+
+    @Test
+    void testRestorePutsBackFailedBatch() {
+        ProfileChangeLog log = new ProfileChangeLog();
+        log.recordUpsert(profile("alice", 30));
+        log.recordDelete("carol");
+        ProfileChangeLog.Batch batch = log.drain();
+
+        log.restore(batch);
+
+        ProfileChangeLog.Batch again = log.drain();
+        assertEquals(batch.getTouchedUsernames(), again.getTouchedUsernames());
+        assertEquals(Set.of("carol"), again.getDeletes());
+    }
+
+    @Test
+    void testRestoreKeepsChangesRecordedSinceDrain() {
+        ProfileChangeLog log = new ProfileChangeLog();
+        log.recordUpsert(profile("alice", 30));
+        log.recordUpsert(profile("bob", 40));
+        ProfileChangeLog.Batch batch = log.drain();
+
+        Profile newer = profile("alice", 31);
+        log.recordUpsert(newer);
+        log.recordDelete("bob");
+        log.restore(batch);
+
+        ProfileChangeLog.Batch again = log.drain();
+        assertEquals(1, again.getUpserts().size());
+        assertSame(newer, again.getUpserts().iterator().next());
+        assertEquals(Set.of("bob"), again.getDeletes());
+    }
+
+    @Test
+    void testRestoredDeleteDoesNotOverrideNewerUpsert() {
+        ProfileChangeLog log = new ProfileChangeLog();
+        log.recordDelete("alice");
+        ProfileChangeLog.Batch batch = log.drain();
+
+        log.recordUpsert(profile("alice", 25));
+        log.restore(batch);
+
+        ProfileChangeLog.Batch again = log.drain();
+        assertTrue(again.getDeletes().isEmpty());
+        assertEquals(1, again.getUpserts().size());
+    }
+}
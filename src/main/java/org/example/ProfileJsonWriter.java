@@ -0,0 +1,190 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Encodes profiles as JSON straight into an output stream through one reusable byte buffer,
+// so a listing never exists as a String or byte[] copy of the whole payload.
+public class ProfileJsonWriter {
+    private static final byte[] USERNAME_FIELD = ascii("{\"username\":");
+    private static final byte[] AGE_FIELD = ascii(",\"age\":");
+    private static final byte[] INTEREST_FIELD = ascii(",\"interest\":");
+    private static final byte[] SCORE_FIELD = ascii(",\"score\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    private boolean firstElement = true;
+
+    public ProfileJsonWriter(OutputStream out) {
+        this(out, 8192);
+    }
+
+    public ProfileJsonWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public void beginArray() throws IOException {
+        writeByte('[');
+        firstElement = true;
+    }
+
+    public void endArray() throws IOException {
+        writeByte(']');
+    }
+
+    public void writeProfile(Profile p) throws IOException {
+        beginProfile(p);
+        writeByte('}');
+    }
+
+    // One profile per line (NDJSON), without array brackets or commas
+    public void writeProfileLine(Profile p) throws IOException {
+        firstElement = true;
+        writeProfile(p);
+        writeByte('\n');
+    }
+
+    // Profile fields plus its match score, rounded to three decimals
+    public void writeMatch(Profile p, double score) throws IOException {
+        beginProfile(p);
+        writeBytes(SCORE_FIELD);
+        writeBytes(ascii(Double.toString(Math.round(score * 1000) / 1000.0)));
+        writeByte('}');
+    }
+
+    private void beginProfile(Profile p) throws IOException {
+        if (!firstElement) writeByte(',');
+        firstElement = false;
+
+        writeBytes(USERNAME_FIELD);
+        writeString(p.getUsername());
+        writeBytes(AGE_FIELD);
+        writeInt(p.getAge());
+        writeBytes(INTEREST_FIELD);
+        writeString(p.getPrimaryInterest().getName());
+    }
+
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeBytes(NULL);
+            return;
+        }
+        writeByte('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writeByte('\\');
+                writeByte(c);
+            } else if (c < 0x20) {
+                writeEscapedControl(c);
+            } else if (c < 0x80) {
+                writeByte(c);
+            } else if (c < 0x800) {
+                writeByte(0xC0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writeByte(0xF0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                writeByte(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, not representable in UTF-8
+                writeByte('?');
+            } else {
+                writeByte(0xE0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3F));
+                writeByte(0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeEscapedControl(char c) throws IOException {
+        writeByte('\\');
+        switch (c) {
+            case '\n': writeByte('n'); break;
+            case '\r': writeByte('r'); break;
+            case '\t': writeByte('t'); break;
+            case '\b': writeByte('b'); break;
+            case '\f': writeByte('f'); break;
+            default:
+                writeByte('u');
+                writeByte('0');
+                writeByte('0');
+                writeByte(HEX[c >> 4]);
+                writeByte(HEX[c & 0xF]);
+        }
+    }
+
+    public void writeInt(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            writeBytes(ascii(Integer.toString(value)));
+            return;
+        }
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        ensureCapacity(10);
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    // Writes bytes that are already valid JSON (pre-encoded fragments)
+    public void writeRaw(byte[] bytes) throws IOException {
+        writeBytes(bytes);
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) flushBuffer();
+        buffer[position++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.length - position < bytes) flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+}
@@ -0,0 +1,114 @@
+package org.example;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-through cache for single-profile database lookups. Bounded LRU with a time to live, and "not found"
+// is cached too (for a shorter time) so repeated searches for unknown usernames do not each hit the database.
+// Keys are exact usernames, as in the database's primary key.
+public class ProfileLookupCache {
+    public interface Loader {
+        // The row as a detached profile, or null if there is none
+        Profile load(String username) throws SQLException;
+    }
+
+    private static class Entry {
+        private final Profile profile;
+        private final long expiresAt;
+
+        private Entry(Profile profile, long expiresAt) {
+            this.profile = profile;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LinkedHashMap<String, Entry> entries;
+    // Bumped by every invalidation; a load that raced with one is not cached
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public ProfileLookupCache(int maxEntries, long ttl, long negativeTtl, TimeUnit unit) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.negativeTtlNanos = unit.toNanos(negativeTtl);
+        // Access order, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= ProfileLookupCache.this.maxEntries) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    public Profile get(String username, Loader loader) throws SQLException {
+        long generation;
+        synchronized (this) {
+            Entry entry = entries.get(username);
+            if (entry != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    if (entry.profile == null) negativeHits.increment(); else hits.increment();
+                    return entry.profile;
+                }
+                entries.remove(username);
+                expirations.increment();
+            }
+            generation = invalidations;
+        }
+
+        // Loaded outside the lock so one slow query does not block other lookups
+        misses.increment();
+        Profile profile = loader.load(username);
+        synchronized (this) {
+            if (generation == invalidations) {
+                long ttl = profile == null ? negativeTtlNanos : ttlNanos;
+                entries.put(username, new Entry(profile, System.nanoTime() + ttl));
+            }
+        }
+        return profile;
+    }
+
+    public synchronized void invalidate(String username) {
+        entries.remove(username);
+        invalidations++;
+    }
+
+    public synchronized void invalidateAll(Iterable<String> usernames) {
+        for (String username : usernames) entries.remove(username);
+        invalidations++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getNegativeHits() { return negativeHits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getExpirations() { return expirations.sum(); }
+
+    @Override
+    public String toString() {
+        long found = hits.sum();
+        long notFound = negativeHits.sum();
+        long missed = misses.sum();
+        long lookups = found + notFound + missed;
+        return String.format("Lookup cache: %d/%d entries, %d hits, %d negative hits, %d misses (%.1f%% hit rate), "
+                        + "%d evictions, %d expirations",
+                size(), maxEntries, found, notFound, missed,
+                lookups > 0 ? 100.0 * (found + notFound) / lookups : 0.0, evictions.sum(), expirations.sum());
+    }
+}
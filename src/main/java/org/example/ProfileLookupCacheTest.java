@@ -0,0 +1,109 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileLookupCacheTest {
+
+    private static Profile profile(String username, int age) {
+        return new Profile(username, age, Interest.of("Hiking"), new ArrayList<>());
+    }
+
+    @Test
+    void testCachesFoundAndMissingRows() throws SQLException {
+        ProfileLookupCache cache = new ProfileLookupCache(10, 60, 60, TimeUnit.SECONDS);
+        AtomicInteger loads = new AtomicInteger();
+        ProfileLookupCache.Loader loader = username -> {
+            loads.incrementAndGet();
+            return username.equals("alice") ? profile("alice", 30) : null;
+        };
+
+        assertEquals(30, cache.get("alice", loader).getAge());
+        assertEquals(30, cache.get("alice", loader).getAge());
+        assertNull(cache.get("nobody", loader));
+        assertNull(cache.get("nobody", loader));
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getNegativeHits());
+    }
+
+    @Test
+    void testInvalidateForcesReload() throws SQLException {
+        ProfileLookupCache cache = new ProfileLookupCache(10, 60, 60, TimeUnit.SECONDS);
+        AtomicInteger age = new AtomicInteger(30);
+        ProfileLookupCache.Loader loader = username -> profile(username, age.get());
+
+        cache.get("alice", loader);
+        age.set(31);
+        assertEquals(30, cache.get("alice", loader).getAge());
+
+        cache.invalidate("alice");
+        assertEquals(31, cache.get("alice", loader).getAge());
+    }
+
+    @Test
+    void testLoadRacingAnInvalidationIsNotCached() throws SQLException {
+        ProfileLookupCache cache = new ProfileLookupCache(10, 60, 60, TimeUnit.SECONDS);
+        ProfileLookupCache.Loader racing = username -> {
+            // A save commits and invalidates while this (now stale) row is being read
+            cache.invalidate(username);
+            return profile(username, 30);
+        };
+
+        cache.get("alice", racing);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedAndExpires() throws Exception {
+        ProfileLookupCache cache = new ProfileLookupCache(2, 60, 0, TimeUnit.SECONDS);
+        AtomicInteger loads = new AtomicInteger();
+        ProfileLookupCache.Loader loader = username -> {
+            loads.incrementAndGet();
+            return username.startsWith("missing") ? null : profile(username, 20);
+        };
+
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader);
+        cache.get("c", loader);
+        assertEquals(1, cache.getEvictions());
+        cache.get("a", loader);
+        assertEquals(3, loads.get(), "a was used more recently than b, so b was evicted");
+
+        cache.get("missing", loader);
+        cache.get("missing", loader);
+        assertEquals(5, loads.get(), "not-found entries with no TTL expire right away");
+    }
+
+    @Test
+    void testSavedChangesInvalidateManagerLookups() throws Exception {
+        TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        manager.addProfile(profile("alice", 30));
+        assertNull(manager.lookupProfileInDB("alice"));
+
+        manager.saveState();
+        assertEquals(30, manager.lookupProfileInDB("alice").getAge());
+
+        try (Connection conn = Database.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE profiles SET age = 99 WHERE username = 'alice'");
+        }
+        assertEquals(30, manager.lookupProfileInDB("alice").getAge(), "served from the cache");
+
+        assertTrue(manager.updateProfileAge("alice", 31));
+        assertEquals(31, manager.lookupProfileInDB("alice").getAge());
+
+        manager.deleteProfile("alice");
+        assertNull(manager.lookupProfileInDB("alice"));
+    }
+}
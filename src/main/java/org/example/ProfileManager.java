@@ -1,85 +1,516 @@
 package org.example;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ProfileManager implements Editable {
-    private List<Profile> allProfiles;
+    // Writer-side store, only touched while holding the manager lock
+    private final Set<Profile> allProfiles;
+    // Immutable copy handed to readers, valid while membershipSeq still has the value it was copied at
+    private volatile Snapshot snapshot;
+    // Seqlock over which profiles exist: odd while a writer adds, removes or renames, so getAllProfiles() can
+    // copy the sorted view without the manager lock and retry if a writer got in the way
+    private final AtomicLong membershipSeq = new AtomicLong();
+    // Nesting depth of membership changes (reloads register many profiles); guarded by the manager lock
+    private int membershipDepth;
+    // Case-folded username -> profile, kept in step with allProfiles and safe to read without the lock
+    private final Map<String, Profile> profilesByUsername = new ConcurrentHashMap<>();
+    private final AgeIndex ageIndex = new AgeIndex();
+    private final InterestIndex interestIndex = new InterestIndex();
+    private final MatchEngine matchEngine = new MatchEngine();
+    // Only built when startMatchGraphThread() is called; null otherwise
+    private volatile MutualMatchGraph matchGraph;
+    // Sorted views kept up to date on every write, so listings and pages never sort per request.
+    // A profile is taken out before its username or age changes and put back afterwards.
+    private final NavigableSet<Profile> byUsername = new ConcurrentSkipListSet<>(ProfileQuery.USERNAME_ORDER);
+    private final NavigableSet<Profile> byAge = new ConcurrentSkipListSet<>(ProfileQuery.AGE_ORDER);
+    private final ProfileChangeLog changeLog = new ProfileChangeLog();
+    // Serializes saves so batches drained from the change log reach the database in order. The age batcher holds
+    // it around each commit too, so a save never rewrites a row with an age older than the committed one.
+    // A ReentrantLock rather than synchronized, so a virtual thread waiting on JDBC does not pin its carrier.
+    private final ReentrantLock saveLock = new ReentrantLock();
+
+    // Bumped by every change to the in-memory profiles
+    private final AtomicLong version = new AtomicLong();
+    // updateProfileAge calls between their database write and their in-memory update
+    private final AtomicInteger directWrites = new AtomicInteger();
+    // Started on the first age update
+    private volatile AgeUpdateBatcher ageUpdateBatcher;
+    // True once the database is known to have the profile_state change counter
+    private volatile boolean changeTracking;
+    // Version the snapshot file was written at; guarded by saveLock
+    private long snapshotVersion = -1;
+    private long lastSnapshotMillis;
+
+    // Database lookups for the search command
+    private final ProfileLookupCache lookupCache = new ProfileLookupCache(
+            Integer.getInteger("db.cacheSize", 10_000),
+            Integer.getInteger("db.cacheTtlSeconds", 60), Integer.getInteger("db.negativeCacheTtlSeconds", 10),
+            TimeUnit.SECONDS);
+    // Null unless openWriteAheadLog() succeeded
+    private volatile WriteAheadLog wal;
+    // Changes pushed to /api/profiles/stream subscribers; published under the manager lock
+    private final ProfileChangeFeed changeFeed = new ProfileChangeFeed();
+
+    private static final String SNAPSHOT_FILE = System.getProperty("snapshot.file", "profiles.snapshot");
+    private static final long SNAPSHOT_INTERVAL_MS = 60_000;
 
     private static final List<Interest> AVAILABLE_INTERESTS = Arrays.asList(
-            new Interest("Hiking"),
-            new Interest("Gaming"),
-            new Interest("Reading"),
-            new Interest("Cooking"),
-            new Interest("Fitness")
+            Interest.of("Hiking"),
+            Interest.of("Gaming"),
+            Interest.of("Reading"),
+            Interest.of("Cooking"),
+            Interest.of("Fitness")
     );
 
     public ProfileManager() {
-        this.allProfiles = new ArrayList<>();
+        this.allProfiles = new LinkedHashSet<>();
     }
 
-    // Load from database
+    private static final int LOAD_FETCH_SIZE = 1000;
+
+    // Load from database with two set-based queries merged by username
     public static ProfileManager loadState() {
         ProfileManager manager = new ProfileManager();
+        loadInto(manager);
+        return manager;
+    }
+
+    private static boolean loadInto(ProfileManager manager) {
+        // Read before the rows, so rows changed during the load make the number look stale rather than current
+        try {
+            manager.changeTracking = ProfileSnapshot.readChangeNumber() >= 0;
+        } catch (SQLException e) {
+            System.err.println("Error loading from DB: " + e.getMessage());
+            return false;
+        }
 
         String queryProfiles = "SELECT username, age, primary_interest FROM profiles";
-        String queryPrefs = "SELECT min_age, max_age FROM match_preferences WHERE profile_username = ?";
+        String queryPrefs = "SELECT profile_username, min_age, max_age FROM match_preferences";
 
-        try (Connection conn = Database.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(queryProfiles)) {
-
-            while (rs.next()) {
-                String username = rs.getString("username");
-                int age = rs.getInt("age");
-                String interestName = rs.getString("primary_interest");
-
-                List<MatchPreference> prefs = new ArrayList<>();
-                try (PreparedStatement ps = conn.prepareStatement(queryPrefs)) {
-                    ps.setString(1, username);
-                    ResultSet rsPrefs = ps.executeQuery();
-                    while (rsPrefs.next()) {
-                        prefs.add(new MatchPreference(rsPrefs.getInt("min_age"), rsPrefs.getInt("max_age")));
+        long startTime = System.nanoTime();
+        int profileRows = 0;
+        int prefRows = 0;
+
+        try (Connection conn = Database.connect()) {
+            // Postgres only streams with a cursor (fetch size) inside a transaction
+            conn.setAutoCommit(false);
+            try {
+                Map<String, List<MatchPreference>> prefsByUsername = new HashMap<>();
+
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.setFetchSize(LOAD_FETCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery(queryProfiles)) {
+                        while (rs.next()) {
+                            String username = rs.getString("username");
+                            int age = rs.getInt("age");
+                            String interestName = rs.getString("primary_interest");
+
+                            List<MatchPreference> prefs = new ArrayList<>();
+                            prefsByUsername.put(username, prefs);
+                            manager.register(new Profile(username, age, Interest.of(interestName), prefs));
+                            profileRows++;
+                        }
                     }
                 }
 
-                Profile p = new Profile(username, age, new Interest(interestName), prefs);
-                manager.addProfile(p);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.setFetchSize(LOAD_FETCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery(queryPrefs)) {
+                        while (rs.next()) {
+                            List<MatchPreference> prefs = prefsByUsername.get(rs.getString("profile_username"));
+                            if (prefs != null) {
+                                prefs.add(new MatchPreference(rs.getInt("min_age"), rs.getInt("max_age")));
+                            }
+                            prefRows++;
+                        }
+                    }
+                }
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
             }
-            System.out.println("Application state loaded from Database.");
+
+            long nanos = System.nanoTime() - startTime;
+            double seconds = nanos / 1_000_000_000.0;
+            int rows = profileRows + prefRows;
+            Metrics.histogram("profile_load_duration_seconds", "Time to load all profiles from the database.", "")
+                    .record(nanos);
+            Metrics.counter("profile_load_rows_total", "Profile and preference rows read by loads.", "").add(rows);
+            System.out.printf("Application state loaded from Database: %d profiles, %d preferences in %.3f s (%.0f rows/sec).%n",
+                    profileRows, prefRows, seconds, seconds > 0 ? rows / seconds : rows);
 
         } catch (SQLException e) {
             System.err.println("Error loading from DB: " + e.getMessage());
+            return false;
         }
+        return true;
+    }
+
+    private static Path snapshotFile() {
+        return SNAPSHOT_FILE.isEmpty() ? null : Paths.get(SNAPSHOT_FILE);
+    }
+
+    // Starts from the local snapshot file when there is one, so the server can answer right away, and checks it
+    // against the database change number in the background. Falls back to loadState() without a snapshot.
+    public static ProfileManager loadWarm() {
+        Path file = snapshotFile();
+        ProfileSnapshot snap = file == null ? null : ProfileSnapshot.read(file);
+        if (snap == null) return loadState();
+
+        long startTime = System.nanoTime();
+        ProfileManager manager = new ProfileManager();
+        ColumnarProfileStore store = snap.getStore();
+        for (int row = 0; row < store.size(); row++) {
+            manager.register(new Profile(store.getUsername(row), store.getAge(row),
+                    store.getInterest(row), store.getPreferences(row)));
+        }
+        manager.snapshotVersion = manager.version.get();
+        System.out.printf("Application state loaded from snapshot: %d profiles in %.3f s (change #%d).%n",
+                store.size(), (System.nanoTime() - startTime) / 1_000_000_000.0, snap.getChangeNumber());
+
+        Thread checkThread = new Thread(() -> manager.checkSnapshot(snap.getChangeNumber()));
+        checkThread.setDaemon(true);
+        checkThread.start();
         return manager;
     }
 
+    void checkSnapshot(long snapshotChangeNumber) {
+        long current;
+        try {
+            current = ProfileSnapshot.readChangeNumber();
+        } catch (SQLException e) {
+            System.err.println("[Snapshot] Database unreachable (" + e.getMessage() + "); serving the snapshot as is.");
+            return;
+        }
+        if (current < 0) {
+            System.err.println("[Snapshot] Database has no change number; serving the snapshot as is.");
+            return;
+        }
+        if (current == snapshotChangeNumber) {
+            changeTracking = true;
+            System.out.println("[Snapshot] Up to date with the database.");
+            return;
+        }
+        System.out.println("[Snapshot] Database changed since the snapshot (#" + snapshotChangeNumber
+                + " -> #" + current + "), reloading.");
+        ProfileManager fresh = new ProfileManager();
+        if (loadInto(fresh)) {
+            reloadFrom(fresh);
+            changeTracking = fresh.changeTracking;
+        }
+    }
+
+    // Swaps in the profiles of a fresh load, keeping the changes made here that are not saved yet
+    private synchronized void reloadFrom(ProfileManager fresh) {
+        ProfileChangeLog.Batch pending = changeLog.peek();
+        Set<String> touched = pending.getTouchedUsernames();
+        MutualMatchGraph graph = matchGraph;
+        beginMembershipChange();
+
+        for (Profile p : allProfiles) {
+            ageIndex.remove(p);
+            interestIndex.remove(p);
+            if (graph != null) graph.remove(p);
+        }
+        allProfiles.clear();
+        profilesByUsername.clear();
+        byUsername.clear();
+        byAge.clear();
+
+        for (Profile p : fresh.allProfiles) {
+            if (!touched.contains(p.getUsername())) register(p);
+        }
+        for (Profile p : pending.getUpserts()) {
+            register(p);
+        }
+        endMembershipChange();
+        changeFeed.resetAll();
+    }
+
+    // Writes the snapshot file if the profiles changed since the last one. Only done once every change has been
+    // saved, so the file holds exactly what the database held at the change number it is tagged with.
+    public boolean writeSnapshot() {
+        Path file = snapshotFile();
+        if (file == null || !changeTracking) return false;
+
+        saveLock.lock();
+        try {
+            long before = version.get();
+            if (before == snapshotVersion || !changeLog.isEmpty() || directWrites.get() > 0) return false;
+            long changeNumber = ProfileSnapshot.readChangeNumber();
+            if (changeNumber < 0) return false;
+
+            long startTime = System.nanoTime();
+            List<Profile> profiles = getAllProfiles();
+            ProfileSnapshot.write(file, profiles, changeNumber);
+            // A change that raced with the copy is saved later and bumps the change number, so the file is
+            // never trusted over the database; it is just rewritten next time.
+            if (version.get() == before) snapshotVersion = before;
+            lastSnapshotMillis = System.currentTimeMillis();
+            System.out.printf("[Snapshot] Wrote %d profiles to %s in %.1f ms (change #%d).%n", profiles.size(),
+                    file, (System.nanoTime() - startTime) / 1_000_000.0, changeNumber);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("[Snapshot] Skipped, database unreachable: " + e.getMessage());
+            return false;
+        } catch (IOException | RuntimeException e) {
+            // The snapshot is only a startup shortcut; failing to write one must not stop the auto-save thread
+            System.err.println("[Snapshot] Could not write " + file + ": " + e);
+            return false;
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    // Writes only the rows recorded in the change log since the last save, in one transaction.
+    // The write-ahead log segments holding those changes are deleted once the transaction has committed.
     public void saveState() {
+        saveLock.lock();
+        try {
+            ProfileChangeLog.Batch batch;
+            long segment = 0;
+            synchronized (this) {
+                batch = changeLog.drain();
+                if (!batch.isEmpty()) segment = rotateLog();
+            }
+            if (saveBatch(batch) && segment > 0) deleteLogUpTo(segment);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private boolean saveBatch(ProfileChangeLog.Batch batch) {
+        if (batch.isEmpty()) return true;
+        long startTime = System.nanoTime();
+
+        String deletePrefs = "DELETE FROM match_preferences WHERE profile_username = ?";
+        String deleteProfile = "DELETE FROM profiles WHERE username = ?";
+
         try (Connection conn = Database.connect()) {
-            conn.createStatement().execute("DELETE FROM match_preferences");
-            conn.createStatement().execute("DELETE FROM profiles");
+            conn.setAutoCommit(false);
+            try (PreparedStatement psDeletePrefs = conn.prepareStatement(deletePrefs);
+                 PreparedStatement psDeleteProfile = conn.prepareStatement(deleteProfile)) {
+
+                // Upserts are written as delete + insert so the preference rows are replaced as well
+                for (String username : batch.getTouchedUsernames()) {
+                    psDeletePrefs.setString(1, username);
+                    psDeletePrefs.addBatch();
+                    psDeleteProfile.setString(1, username);
+                    psDeleteProfile.addBatch();
+                }
+                psDeletePrefs.executeBatch();
+                psDeleteProfile.executeBatch();
+
+                insertProfiles(conn, batch.getUpserts());
+                if (changeTracking) bumpChangeNumber(conn);
+
+                conn.commit();
+                lookupCache.invalidateAll(batch.getTouchedUsernames());
+                Metrics.histogram("profile_save_duration_seconds", "Time to write one batch of changed profiles.", "")
+                        .record(System.nanoTime() - startTime);
+                Metrics.counter("profile_save_rows_total", "Changed profiles written by saves.", "").add(batch.size());
+            } catch (SQLException | RuntimeException e) {
+                // Rolled back here, or setAutoCommit(true) below would commit the partial batch
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Any failure keeps the batch, so its write-ahead log segment is not deleted either
+            changeLog.restore(batch);
+            Metrics.counter("profile_save_failures_total", "Saves rolled back and kept for the next attempt.", "").increment();
+            System.err.println("Error saving to DB: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    // Replays changes an earlier run logged but never saved, then logs every change from here on.
+    // Without a log, changes only survive a crash once saveState() has run.
+    public void openWriteAheadLog(Path dir) {
+        try {
+            WriteAheadLog log = new WriteAheadLog(dir);
+            int replayed = log.replay(this::applyLogged);
+            wal = log;
+            if (replayed > 0) System.out.println("[WAL] Replayed " + replayed + " unsaved changes from " + dir + ".");
+        } catch (IOException e) {
+            System.err.println("[WAL] Could not open " + dir + ": " + e.getMessage());
+        }
+    }
+
+    public WriteAheadLog getWriteAheadLog() {
+        return wal;
+    }
+
+    private interface LogAppend {
+        long append(WriteAheadLog log) throws IOException;
+    }
+
+    // Called while holding the manager lock, so records are in the same order as the changes.
+    // Returns the position to wait for, or 0 if nothing was logged.
+    private long log(LogAppend append) {
+        WriteAheadLog log = wal;
+        if (log == null) return 0;
+        try {
+            return append.append(log);
+        } catch (IOException e) {
+            System.err.println("[WAL] Append failed, change is kept in memory until the next save: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Called after releasing the manager lock, so concurrent writers share one fsync
+    private void awaitDurable(long position) {
+        WriteAheadLog log = wal;
+        if (log == null || position == 0) return;
+        try {
+            log.sync(position);
+        } catch (IOException e) {
+            System.err.println("[WAL] Sync failed: " + e.getMessage());
+        }
+    }
 
-            String insertProfile = "INSERT INTO profiles (username, age, primary_interest) VALUES (?, ?, ?)";
-            String insertPref = "INSERT INTO match_preferences (profile_username, min_age, max_age) VALUES (?, ?, ?)";
+    private long rotateLog() {
+        WriteAheadLog log = wal;
+        if (log == null) return 0;
+        try {
+            return log.rotate();
+        } catch (IOException e) {
+            System.err.println("[WAL] Could not start a new segment: " + e.getMessage());
+            return 0;
+        }
+    }
 
-            PreparedStatement psProfile = conn.prepareStatement(insertProfile);
-            PreparedStatement psPref = conn.prepareStatement(insertPref);
+    private void deleteLogUpTo(long segment) {
+        try {
+            wal.deleteUpTo(segment);
+        } catch (IOException e) {
+            System.err.println("[WAL] Could not delete saved segments: " + e.getMessage());
+        }
+    }
 
-            for (Profile p : allProfiles) {
+    private synchronized void applyLogged(WriteAheadLog.Record record) {
+        Profile p = record.getProfile();
+        switch (record.getType()) {
+            case UPSERT:
+                unregister(findProfile(p.getUsername()));
+                register(p);
+                changeLog.recordUpsert(p);
+                break;
+            case DELETE:
+                unregister(findProfile(record.getUsername()));
+                changeLog.recordDelete(record.getUsername());
+                break;
+            case RENAME:
+                unregister(findProfile(record.getUsername()));
+                unregister(findProfile(p.getUsername()));
+                register(p);
+                changeLog.recordRename(record.getUsername(), p);
+                break;
+        }
+    }
+
+    // Profile rows and their preference rows as two JDBC batches
+    private static void insertProfiles(Connection conn, Collection<Profile> profiles) throws SQLException {
+        String insertProfile = "INSERT INTO profiles (username, age, primary_interest) VALUES (?, ?, ?)";
+        String insertPref = "INSERT INTO match_preferences (profile_username, min_age, max_age) VALUES (?, ?, ?)";
+
+        try (PreparedStatement psProfile = conn.prepareStatement(insertProfile);
+             PreparedStatement psPref = conn.prepareStatement(insertPref)) {
+            for (Profile p : profiles) {
                 psProfile.setString(1, p.getUsername());
                 psProfile.setInt(2, p.getAge());
                 psProfile.setString(3, p.getPrimaryInterest().getName());
-                psProfile.executeUpdate();
+                psProfile.addBatch();
 
                 for (MatchPreference pref : p.getPreferences()) {
                     psPref.setString(1, p.getUsername());
                     psPref.setInt(2, pref.getMinAge());
                     psPref.setInt(3, pref.getMaxAge());
-                    psPref.executeUpdate();
+                    psPref.addBatch();
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Error saving to DB: " + e.getMessage());
+            psProfile.executeBatch();
+            psPref.executeBatch();
+        }
+    }
+
+    // Adds a chunk of new profiles and inserts them with one JDBC batch in one transaction, bypassing the change
+    // log. Returns the rejection message per profile (same index), null for accepted ones. If the database write
+    // fails the profiles are logged like any other add and left to the next save, and are only reported as
+    // imported once that log record is on disk.
+    public String[] importProfiles(List<Profile> profiles) {
+        String[] errors = new String[profiles.size()];
+        List<Profile> accepted = new ArrayList<>(profiles.size());
+
+        // Holding saveLock keeps a save from writing a later change to one of these rows before they are inserted
+        saveLock.lock();
+        try {
+            synchronized (this) {
+                for (int i = 0; i < profiles.size(); i++) {
+                    Profile p = profiles.get(i);
+                    if (usernameExists(p.getUsername())) {
+                        errors[i] = new DuplicateProfileException(p.getUsername()).getMessage();
+                    } else {
+                        register(p);
+                        changeFeed.created(p);
+                        accepted.add(p);
+                    }
+                }
+            }
+            if (accepted.isEmpty()) return errors;
+
+            try (Connection conn = Database.connect()) {
+                conn.setAutoCommit(false);
+                try {
+                    insertProfiles(conn, accepted);
+                    if (changeTracking) bumpChangeNumber(conn);
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException | RuntimeException e) {
+                long position = 0;
+                synchronized (this) {
+                    for (Profile p : accepted) {
+                        // Unless it was deleted or renamed in the meantime
+                        if (findProfile(p.getUsername()) == p) {
+                            position = Math.max(position, log(log -> log.appendUpsert(p)));
+                            changeLog.recordUpsert(p);
+                        }
+                    }
+                }
+                awaitDurable(position);
+                System.err.println("Bulk import: database write failed, profiles are saved with the next save: "
+                        + e.getMessage());
+            }
+            List<String> names = new ArrayList<>(accepted.size());
+            for (Profile p : accepted) names.add(p.getUsername());
+            lookupCache.invalidateAll(names);
+        } finally {
+            saveLock.unlock();
+        }
+        return errors;
+    }
+
+    static void bumpChangeNumber(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE profile_state SET change_number = change_number + 1 WHERE id = 1");
         }
     }
 
@@ -111,12 +542,14 @@ public class ProfileManager implements Editable {
                     this.update(oldName, newName);
                     break;
                 case "sort-user":
-                    this.sortByUsername();
-                    this.displayAllProfiles();
+                    List<Profile> byName = this.sortByUsername();
+                    System.out.println("Profiles sorted successfully by Username.");
+                    this.displayProfiles(byName);
                     break;
                 case "sort-age":
-                    this.sortByAge();
-                    this.displayAllProfiles();
+                    List<Profile> byAgeList = this.sortByAge();
+                    System.out.println("Profiles sorted successfully by Age.");
+                    this.displayProfiles(byAgeList);
                     break;
                 case "group":
                     System.out.print("Group by which interest? ");
@@ -140,8 +573,25 @@ public class ProfileManager implements Editable {
                     break;
                 case "exit":
                     this.saveState();
+                    this.writeSnapshot();
                     System.exit(0);
                     break;
+                case "pool":
+                    Database.printPoolStats();
+                    break;
+                case "batch-stats":
+                    System.out.println(ageUpdateBatcher == null ? "No age updates yet." : ageUpdateBatcher.toString());
+                    break;
+                case "cache-stats":
+                    System.out.println(lookupCache);
+                    break;
+                case "wal":
+                    System.out.println(wal == null ? "Write-ahead log is disabled." : wal.toString());
+                    break;
+                case "match-stats":
+                    System.out.println("Match engine: " + matchEngine);
+                    if (matchGraph != null) System.out.println("Match graph:  " + matchGraph);
+                    break;
                 case "login":
                     System.out.println("\n--- Database Login ---");
                     System.out.println("1. Admin");
@@ -179,34 +629,173 @@ public class ProfileManager implements Editable {
         System.out.println("  group       - Groups profiles by primary interest.");
         System.out.println("  match       - Find matches based on preferences.");
         System.out.println("  login       - Login to admin or guest.");
+        System.out.println("  pool        - Shows database connection pool statistics.");
+        System.out.println("  wal         - Shows write-ahead log statistics.");
+        System.out.println("  cache-stats - Shows hit/miss counters of the database lookup cache.");
+        System.out.println("  batch-stats - Shows how age updates were batched into transactions.");
+        System.out.println("  match-stats - Shows match engine query latency.");
         System.out.println("  exit        - Saves state to Database and quits.");
     }
 
-    private boolean usernameExists(String username) {
-        for (Profile p : allProfiles) {
-            if (p.getUsername().equalsIgnoreCase(username)) return true;
-        }
-        return false;
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    public boolean usernameExists(String username) {
+        return profilesByUsername.containsKey(key(username));
+    }
+
+    public Profile findProfile(String username) {
+        return profilesByUsername.get(key(username));
     }
 
     public void addProfile(Profile p) {
+        long position;
+        synchronized (this) {
+            position = log(log -> log.appendUpsert(p));
+            register(p);
+            changeLog.recordUpsert(p);
+            changeFeed.created(p);
+        }
+        awaitDurable(position);
+    }
+
+    // Checks for a duplicate and adds in one step, so two concurrent creates cannot both succeed
+    public void createProfile(Profile p) throws DuplicateProfileException {
+        long position;
+        synchronized (this) {
+            if (usernameExists(p.getUsername())) throw new DuplicateProfileException(p.getUsername());
+            position = log(log -> log.appendUpsert(p));
+            register(p);
+            changeLog.recordUpsert(p);
+            changeFeed.created(p);
+        }
+        awaitDurable(position);
+    }
+
+    // Adds a profile that is already persisted, without recording it as a change
+    void register(Profile p) {
+        beginMembershipChange();
         this.allProfiles.add(p);
+        profilesByUsername.put(key(p.getUsername()), p);
+        ageIndex.add(p);
+        interestIndex.add(p);
+        byUsername.add(p);
+        byAge.add(p);
+        endMembershipChange();
+        version.incrementAndGet();
+        MutualMatchGraph graph = matchGraph;
+        if (graph != null) graph.markDirty(p);
+    }
+
+    // Takes a profile out of every index; no-op for null
+    private void unregister(Profile p) {
+        if (p == null) return;
+        beginMembershipChange();
+        profilesByUsername.remove(key(p.getUsername()), p);
+        allProfiles.remove(p);
+        ageIndex.remove(p);
+        interestIndex.remove(p);
+        byUsername.remove(p);
+        byAge.remove(p);
+        endMembershipChange();
+        version.incrementAndGet();
+        MutualMatchGraph graph = matchGraph;
+        if (graph != null) graph.remove(p);
+    }
+
+    private static final class Snapshot {
+        private final long seq;
+        private final List<Profile> profiles;
+
+        private Snapshot(long seq, List<Profile> profiles) {
+            this.seq = seq;
+            this.profiles = profiles;
+        }
     }
 
+    private void beginMembershipChange() {
+        if (membershipDepth++ == 0) membershipSeq.incrementAndGet();
+    }
+
+    private void endMembershipChange() {
+        if (--membershipDepth == 0) membershipSeq.incrementAndGet();
+    }
+
+    private static final int SNAPSHOT_COPY_ATTEMPTS = 3;
+
+    // Read-only snapshot in username order; never changes under the caller. Copied without the manager lock,
+    // so a large listing does not hold up writers; only if writers keep racing the copy is the lock taken.
     public List<Profile> getAllProfiles() {
-        return allProfiles;
+        for (int attempt = 0; attempt < SNAPSHOT_COPY_ATTEMPTS; attempt++) {
+            long seq = membershipSeq.get();
+            Snapshot current = snapshot;
+            if (current != null && current.seq == seq) return current.profiles;
+            if ((seq & 1) == 0) {
+                List<Profile> copy = List.copyOf(byUsername);
+                if (membershipSeq.get() == seq) {
+                    snapshot = new Snapshot(seq, copy);
+                    return copy;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        synchronized (this) {
+            long seq = membershipSeq.get();
+            List<Profile> copy = List.copyOf(byUsername);
+            snapshot = new Snapshot(seq, copy);
+            return copy;
+        }
     }
 
     @Override
     public void update(String usernameToFind, String newUsername) {
-        for (Profile p : allProfiles) {
-            if (p.getUsername().equals(usernameToFind)) {
-                p.setUsername(newUsername);
+        try {
+            if (renameProfile(usernameToFind, newUsername)) {
                 System.out.println("Renamed profile '" + usernameToFind + "' to '" + newUsername + "'.");
-                return;
+            } else {
+                System.out.println("Profile '" + usernameToFind + "' not found for update.");
             }
+        } catch (DuplicateProfileException e) {
+            System.out.println(e.getMessage());
         }
-        System.out.println("Profile '" + usernameToFind + "' not found for update.");
+    }
+
+    public boolean renameProfile(String currentName, String newName) throws DuplicateProfileException {
+        long position;
+        synchronized (this) {
+            Profile p = profilesByUsername.get(key(currentName));
+            if (p == null) return false;
+
+            Profile existing = profilesByUsername.get(key(newName));
+            if (existing != null && existing != p) throw new DuplicateProfileException(newName);
+
+            String oldName = p.getUsername();
+            // Logged before anything changes, as for adds and deletes, so a failed encode leaves no half-rename
+            position = log(log -> log.appendRename(oldName, newName, p));
+            // The sorted views and indexes are ordered by username, so the profile is out of them while it changes
+            beginMembershipChange();
+            byUsername.remove(p);
+            byAge.remove(p);
+            ageIndex.remove(p);
+            interestIndex.remove(p);
+            p.setUsername(newName);
+            byUsername.add(p);
+            byAge.add(p);
+            ageIndex.add(p);
+            interestIndex.add(p);
+            // Publish the new key before dropping the old one so lock-free lookups never miss the profile
+            profilesByUsername.put(key(newName), p);
+            if (!key(oldName).equals(key(newName))) profilesByUsername.remove(key(oldName));
+            endMembershipChange();
+            changeLog.recordRename(oldName, p);
+            version.incrementAndGet();
+            lookupCache.invalidate(oldName);
+            lookupCache.invalidate(newName);
+            changeFeed.renamed(oldName, p);
+        }
+        awaitDurable(position);
+        return true;
     }
 
     private Interest selectPrimaryInterest(Scanner scanner) {
@@ -257,33 +846,110 @@ public class ProfileManager implements Editable {
     }
 
     public void displayAllProfiles() {
-        if (allProfiles.isEmpty()) {
+        displayProfiles(getAllProfiles());
+    }
+
+    private void displayProfiles(List<Profile> profiles) {
+        if (profiles.isEmpty()) {
             System.out.println("\n--- No Profiles Loaded ---");
             return;
         }
-        System.out.println("\n--- All Managed Profiles (" + allProfiles.size() + ") ---");
-        for (Profile profile : allProfiles) {
+        System.out.println("\n--- All Managed Profiles (" + profiles.size() + ") ---");
+        for (Profile profile : profiles) {
             System.out.println(" * " + profile.toString());
         }
         System.out.println("--------------------------------------");
     }
 
-    public void sortByUsername() {
-        Collections.sort(this.allProfiles);
-        System.out.println("Profiles sorted successfully by Username.");
+    // Copies of the maintained sorted views; the shared store keeps its order
+    public List<Profile> sortByUsername() {
+        return new ArrayList<>(byUsername);
+    }
+
+    public List<Profile> sortByAge() {
+        return new ArrayList<>(byAge);
+    }
+
+    // Lazily walks a sorted view from the cursor position, skipping profiles the filters reject. Filtered
+    // queries start from the smaller of the interest index and the age buckets, so they walk the candidates,
+    // not the store. The caller stops after the page size, so the work done depends on the page.
+    public Iterator<Profile> queryProfiles(ProfileQuery query) {
+        String interest = query.getInterest();
+        if (query.getSort() == ProfileQuery.Sort.AGE) {
+            // Both views are in age order, so the age range bounds the walk either way
+            NavigableSet<Profile> view = interest != null ? interestIndex.findByAge(interest) : byAge;
+            if (query.hasCursor() && query.getAfterAge() >= query.getMinAge()) {
+                view = view.tailSet(probe(query.getAfterUsername(), query.getAfterAge()), false);
+            } else {
+                view = view.tailSet(probe("", query.getMinAge()), true);
+            }
+            return new QueryIterator(view.iterator(), query);
+        }
+
+        Profile after = query.hasCursor() ? probe(query.getAfterUsername(), 0) : null;
+        // Ages outside the index range (legacy rows) are only in the full views
+        boolean ageIndexed = query.getMinAge() >= AgeIndex.MIN_AGE && query.getMaxAge() <= AgeIndex.MAX_AGE;
+        int ageCandidates = ageIndexed ? ageIndex.count(query.getMinAge(), query.getMaxAge()) : Integer.MAX_VALUE;
+        Iterator<Profile> source;
+        if (interest != null && interestIndex.count(interest) <= ageCandidates) {
+            NavigableSet<Profile> view = interestIndex.find(interest);
+            source = (after == null ? view : view.tailSet(after, false)).iterator();
+        } else if (ageIndexed) {
+            source = ageIndex.iterateByUsername(query.getMinAge(), query.getMaxAge(), after);
+        } else {
+            source = (after == null ? byUsername : byUsername.tailSet(after, false)).iterator();
+        }
+        return new QueryIterator(source, query);
+    }
+
+    // Stand-in profile used only as a position in the sorted views
+    private static Profile probe(String username, int age) {
+        return new Profile(username, age, null, null);
     }
 
-    public void sortByAge() {
-        Collections.sort(this.allProfiles, Comparator.comparingInt(Profile::getAge));
-        System.out.println("Profiles sorted successfully by Age.");
+    private static class QueryIterator implements Iterator<Profile> {
+        private final Iterator<Profile> source;
+        private final ProfileQuery query;
+        private Profile next;
+
+        private QueryIterator(Iterator<Profile> source, ProfileQuery query) {
+            this.source = source;
+            this.query = query;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (source.hasNext()) {
+                Profile p = source.next();
+                // The age view is ordered by age, nothing past maxAge can match
+                if (query.getSort() == ProfileQuery.Sort.AGE && p.getAge() > query.getMaxAge()) return;
+                if (query.matches(p)) {
+                    next = p;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Profile next() {
+            if (next == null) throw new NoSuchElementException();
+            Profile current = next;
+            advance();
+            return current;
+        }
     }
 
+    // Reads the concurrent interest index without the manager lock
     public ProfileGroup groupProfilesByInterest(String targetInterest) {
         ProfileGroup group = new ProfileGroup(targetInterest + " Group");
-        for (Profile p : allProfiles) {
-            if (p.getPrimaryInterest().getName().equalsIgnoreCase(targetInterest)) {
-                group.addProfile(p);
-            }
+        for (Profile p : interestIndex.find(targetInterest)) {
+            group.addProfile(p);
         }
         return group;
     }
@@ -295,8 +961,14 @@ public class ProfileManager implements Editable {
                 try {
                     Thread.sleep(15000);
                     this.saveState();
+                    if (System.currentTimeMillis() - lastSnapshotMillis >= SNAPSHOT_INTERVAL_MS) {
+                        this.writeSnapshot();
+                    }
                 } catch (InterruptedException e) {
                     break;
+                } catch (RuntimeException e) {
+                    // One bad round must not stop every later save
+                    System.err.println("[System] Auto-save failed: " + e);
                 }
             }
         });
@@ -304,17 +976,49 @@ public class ProfileManager implements Editable {
         autoSaveThread.start();
     }
 
+    // Builds the mutual-match graph and keeps it current in the background. Every change to a profile's age or
+    // preferences queues that profile; the thread recomputes only its edges, from the age buckets it covers.
+    public void startMatchGraphThread() {
+        MutualMatchGraph graph = new MutualMatchGraph();
+        synchronized (this) {
+            for (Profile p : allProfiles) graph.markDirty(p);
+            matchGraph = graph;
+        }
+
+        Thread graphThread = new Thread(() -> {
+            System.out.println("[System] Match graph builder started.");
+            while (true) {
+                try {
+                    Profile p = graph.takeDirty();
+                    synchronized (this) {
+                        // Skip profiles deleted since they were queued
+                        if (allProfiles.contains(p)) graph.rebuild(p, ageIndex);
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        });
+        graphThread.setDaemon(true);
+        graphThread.start();
+    }
+
+    // Precomputed mutual matches; empty when the graph is not enabled
+    public List<Profile> getMutualMatches(Profile p) {
+        MutualMatchGraph graph = matchGraph;
+        if (graph == null) return new ArrayList<>();
+        return new ArrayList<>(graph.getMatches(p));
+    }
+
+    public MutualMatchGraph getMatchGraph() {
+        return matchGraph;
+    }
+
     public void findMatchesInteractive(Scanner scanner) {
         System.out.print("Enter your username: ");
         String username = scanner.nextLine();
 
-        Profile seeker = null;
-        for (Profile p : allProfiles) {
-            if (p.getUsername().equalsIgnoreCase(username)) {
-                seeker = p;
-                break;
-            }
-        }
+        Profile seeker = findProfile(username);
 
         if (seeker == null) {
             System.out.println("User '" + username + "' not found.");
@@ -328,32 +1032,26 @@ public class ProfileManager implements Editable {
             int max = scanner.nextInt();
             scanner.nextLine();
 
-            if (seeker.getAge() >= 18) {
-                if (min < 18 || max < 18) {
-                    System.out.println("Error: Age restriction. You must be under 18 to get matches in this age range.");
-                    System.out.println("Match cancelled.");
-                    return;
-                }
+            if (!isAllowedRange(seeker, min, max)) {
+                System.out.println("Error: Age restriction. You must be under 18 to get matches in this age range.");
+                System.out.println("Match cancelled.");
+                return;
             }
 
-            MatchPreference pref = seeker.getPreferences().get(0);
-            pref.setMinAge(min);
-            pref.setMaxAge(max);
+            MatchPreference pref = updatePreference(seeker, min, max);
+            if (pref == null) {
+                System.out.println("User '" + username + "' was deleted.");
+                return;
+            }
 
 
             System.out.println("\n--- Matches (Age " + min + "-" + max + ") ---");
-            boolean found = false;
-
-            for (Profile p : allProfiles) {
-                if (!p.getUsername().equals(seeker.getUsername()) &&
-                        p.getAge() >= min && p.getAge() <= max) {
-
-                    System.out.println(" [MATCH] " + p.toString());
-                    found = true;
-                }
+            List<Profile> matches = findMatches(seeker, pref);
+            for (Profile p : matches) {
+                System.out.println(" [MATCH] " + p.toString());
             }
 
-            if (!found) System.out.println("No matches found.");
+            if (matches.isEmpty()) System.out.println("No matches found.");
 
         } catch (Exception e) {
             System.out.println("Invalid input. Please enter numbers for age.");
@@ -361,71 +1059,192 @@ public class ProfileManager implements Editable {
         }
     }
 
-    public void searchProfileDirectlyInDB(Scanner scanner) {
-        System.out.print("Enter username to search in DB: ");
-        String searchName = scanner.nextLine().trim();
+    // Replaces the primary preference with a new list, so a concurrent save never iterates a list being changed
+    // Null if the seeker was deleted (or replaced under the same username) before the change could be made
+    public MatchPreference updatePreference(Profile seeker, int minAge, int maxAge) {
+        MatchPreference pref = new MatchPreference(minAge, maxAge);
+        long position;
+        synchronized (this) {
+            // Checked under the lock deletes take, so a deleted profile is never recorded as an upsert again
+            if (profilesByUsername.get(key(seeker.getUsername())) != seeker) return null;
+            List<MatchPreference> prefs = new ArrayList<>(seeker.getPreferences());
+            if (prefs.isEmpty()) {
+                prefs.add(pref);
+            } else {
+                prefs.set(0, pref);
+            }
+            seeker.setPreferences(prefs);
+            changeLog.recordUpsert(seeker);
+            version.incrementAndGet();
+            position = log(log -> log.appendUpsert(seeker));
+            MutualMatchGraph graph = matchGraph;
+            if (graph != null) graph.markDirty(seeker);
+        }
+        awaitDurable(position);
+        return pref;
+    }
 
-        String sql = "SELECT p.username, p.age, p.primary_interest " +
-                "FROM profiles p " +
-                "WHERE p.username = ?";
+    // Adults may only ask for adults; what is found is further limited by MatchEngine.sameAgeGroup
+    public static boolean isAllowedRange(Profile seeker, int minAge, int maxAge) {
+        return seeker.getAge() < MatchEngine.ADULT_AGE
+                || (minAge >= MatchEngine.ADULT_AGE && maxAge >= MatchEngine.ADULT_AGE);
+    }
 
-        try (java.sql.Connection conn = Database.connect();
-             java.sql.PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    // Profiles whose age falls in the preference range, answered from the age index
+    // Reads the concurrent age index without the manager lock
+    public List<Profile> findMatches(Profile seeker, MatchPreference pref) {
+        if (!isAllowedRange(seeker, pref.getMinAge(), pref.getMaxAge())) return new ArrayList<>();
 
-            pstmt.setString(1, searchName);
+        List<Profile> matches = ageIndex.findInRange(pref.getMinAge(), pref.getMaxAge());
+        matches.removeIf(p -> p == seeker || !MatchEngine.sameAgeGroup(seeker, p));
+        return matches;
+    }
 
-            java.sql.ResultSet rs = pstmt.executeQuery();
+    // Best k candidates by MatchEngine score, highest first
+    public List<MatchEngine.Match> findTopMatches(Profile seeker, int k) {
+        return matchEngine.topMatches(seeker, ageIndex, k);
+    }
+
+    public MatchEngine getMatchEngine() {
+        return matchEngine;
+    }
+
+    public void searchProfileDirectlyInDB(Scanner scanner) {
+        System.out.print("Enter username to search in DB: ");
+        String searchName = scanner.nextLine().trim();
 
-            if (rs.next()) {
-                String foundName = rs.getString("username");
-                int foundAge = rs.getInt("age");
-                String foundInterest = rs.getString("primary_interest");
+        try {
+            Profile found = lookupProfileInDB(searchName);
 
+            if (found != null) {
                 System.out.println("\n[Database Result] Found Profile:");
                 System.out.println("---------------------------------");
-                System.out.println(" Username : " + foundName);
-                System.out.println(" Age      : " + foundAge);
-                System.out.println(" Interest : " + foundInterest);
+                System.out.println(" Username : " + found.getUsername());
+                System.out.println(" Age      : " + found.getAge());
+                System.out.println(" Interest : " + found.getPrimaryInterest());
                 System.out.println("---------------------------------");
             } else {
                 System.out.println("[Database Result] No profile found with name '" + searchName + "'.");
             }
 
-        } catch (java.sql.SQLException e) {
+        } catch (SQLException e) {
             System.out.println("Database error: " + e.getMessage());
         }
     }
 
-    public boolean updateProfileAge(String username, int newAge) {
-        String sql = "UPDATE profiles SET age = ? WHERE username = ?";
+    // Profile row as stored in the database (without preferences), or null; answered from the lookup cache when
+    // possible. The returned profile is a detached copy, not the one held by this manager.
+    public Profile lookupProfileInDB(String username) throws SQLException {
+        return lookupCache.get(username, ProfileManager::queryProfileRow);
+    }
+
+    private static Profile queryProfileRow(String username) throws SQLException {
+        String sql = "SELECT p.username, p.age, p.primary_interest " +
+                "FROM profiles p " +
+                "WHERE p.username = ?";
 
         try (Connection conn = Database.connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setInt(1, newAge);
-            pstmt.setString(2, username);
+            pstmt.setString(1, username);
 
-            int rows = pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                return new Profile(rs.getString("username"), rs.getInt("age"),
+                        Interest.of(rs.getString("primary_interest")), new ArrayList<>());
+            }
+        }
+    }
 
-            if (rows > 0) {
-                for (Profile p : allProfiles) {
-                    if (p.getUsername().equalsIgnoreCase(username)) {
-                        p.setAge(newAge);
-                        break;
-                    }
-                }
-                return true;
+    // Changes whenever the profiles do, so responses built from them can be cached per version
+    public long getDataVersion() {
+        return version.get();
+    }
+
+    public static List<Interest> getAvailableInterests() {
+        return Collections.unmodifiableList(AVAILABLE_INTERESTS);
+    }
+
+    // The offered interest with this name, ignoring case, or null if it is not one of them
+    public static Interest findAvailableInterest(String name) {
+        for (Interest interest : AVAILABLE_INTERESTS) {
+            if (interest.getName().equalsIgnoreCase(name)) return interest;
+        }
+        return null;
+    }
+
+    public ProfileChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    public ProfileLookupCache getLookupCache() {
+        return lookupCache;
+    }
+
+    // Waits for the batch holding this update to commit
+    public boolean updateProfileAge(String username, int newAge) {
+        return updateProfileAgeAsync(username, newAge).join();
+    }
+
+    // Queued for the next database batch; the future completes after commit, with false if no row matched
+    public CompletableFuture<Boolean> updateProfileAgeAsync(String username, int newAge) {
+        directWrites.incrementAndGet();
+        return ageUpdates().submit(username, newAge)
+                .whenComplete((updated, error) -> {
+                    lookupCache.invalidate(username);
+                    directWrites.decrementAndGet();
+                });
+    }
+
+    private AgeUpdateBatcher ageUpdates() {
+        AgeUpdateBatcher batcher = ageUpdateBatcher;
+        if (batcher != null) return batcher;
+        synchronized (this) {
+            if (ageUpdateBatcher == null) {
+                ageUpdateBatcher = new AgeUpdateBatcher(AgeUpdateBatcher.WINDOW_MILLIS, AgeUpdateBatcher.MAX_BATCH,
+                        () -> changeTracking, this::applyAge, saveLock);
             }
-        } catch (SQLException e) {
-            System.err.println("Update failed: " + e.getMessage());
+            return ageUpdateBatcher;
+        }
+    }
+
+    // Runs once the new age is committed, still under saveLock, so a save that drained an older change to this
+    // profile cannot write the row again until the new age is in memory
+    private synchronized void applyAge(String username, int newAge) {
+        Profile p = findProfile(username);
+        if (p != null) {
+            ageIndex.remove(p);
+            interestIndex.remove(p);
+            byAge.remove(p);
+            p.setAge(newAge);
+            ageIndex.add(p);
+            interestIndex.add(p);
+            byAge.add(p);
+            version.incrementAndGet();
+            changeFeed.ageChanged(p);
+            MutualMatchGraph graph = matchGraph;
+            if (graph != null) graph.markDirty(p);
         }
-        return false;
     }
+
+    // Durable once the write-ahead log record is on disk; without a log the delete is saved right away
     public boolean deleteProfile(String username) {
-        boolean removed = allProfiles.removeIf(p -> p.getUsername().equalsIgnoreCase(username));
-        if (removed) {
+        long position;
+        synchronized (this) {
+            Profile p = profilesByUsername.get(key(username));
+            if (p == null) return false;
+            position = log(log -> log.appendDelete(p.getUsername()));
+            unregister(p);
+            lookupCache.invalidate(username);
+            lookupCache.invalidate(p.getUsername());
+            changeLog.recordDelete(p.getUsername());
+            changeFeed.deleted(p.getUsername());
+        }
+        if (wal == null) {
             saveState();
+        } else {
+            awaitDurable(position);
         }
-        return removed;
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileManagerTest {
+
+    private static Profile profile(String username, int age) {
+        return new Profile(username, age, Interest.of("Hiking"), new ArrayList<>());
+    }
+
+    @Test
+    void testSaveWritesChangedRows() throws Exception {
+        TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        Profile alice = profile("alice", 30);
+        alice.getPreferences().add(new MatchPreference(25, 35));
+        manager.addProfile(alice);
+        manager.addProfile(profile("bob", 40));
+
+        manager.saveState();
+        manager.deleteProfile("bob");
+        manager.saveState();
+
+        assertEquals(1, TestDatabase.count("SELECT COUNT(*) FROM profiles"));
+        assertEquals(1, TestDatabase.count("SELECT COUNT(*) FROM match_preferences"));
+    }
+
+    @Test
+    void testBatchSurvivesUnreachableDatabase() throws Exception {
+        String url = TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        manager.addProfile(profile("alice", 30));
+
+        Database.setUrl(TestDatabase.UNREACHABLE_URL);
+        try {
+            manager.saveState();
+        } finally {
+            Database.setUrl(url);
+        }
+        assertEquals(0, TestDatabase.count("SELECT COUNT(*) FROM profiles"));
+
+        manager.saveState();
+        assertEquals(1, TestDatabase.count("SELECT COUNT(*) FROM profiles WHERE username = 'alice'"));
+    }
+
+    @Test
+    void testRuntimeFailureRollsBackAndKeepsBatch() throws Exception {
+        TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        manager.addProfile(profile("alice", 30));
+        // No preference list, so writing the batch fails part way with a NullPointerException
+        Profile broken = new Profile("bob", 40, Interest.of("Hiking"), null);
+        manager.addProfile(broken);
+
+        manager.saveState();
+        assertEquals(0, TestDatabase.count("SELECT COUNT(*) FROM profiles"));
+
+        broken.setPreferences(new ArrayList<>());
+        manager.saveState();
+        assertEquals(2, TestDatabase.count("SELECT COUNT(*) FROM profiles"));
+    }
+
+    @Test
+    void testReadsDoNotWaitForManagerLock() throws Exception {
+        ProfileManager manager = new ProfileManager();
+        Profile seeker = profile("alice", 30);
+        seeker.getPreferences().add(new MatchPreference(25, 35));
+        manager.addProfile(seeker);
+        manager.addProfile(profile("bob", 32));
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (manager) {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertEquals(2, manager.getAllProfiles().size());
+                assertEquals(2, manager.groupProfilesByInterest("hiking").getProfiles().size());
+                assertEquals(List.of(manager.findProfile("bob")),
+                        manager.findMatches(seeker, seeker.getPreferences().get(0)));
+                assertEquals(1, manager.findTopMatches(seeker, 5).size());
+            });
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    @Test
+    void testSnapshotIsConsistentDuringRenames() throws Exception {
+        ProfileManager manager = new ProfileManager();
+        for (int i = 0; i < 200; i++) manager.addProfile(profile("user" + i, 20 + i % 50));
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread renamer = new Thread(() -> {
+            try {
+                for (int i = 0; running.get(); i++) {
+                    manager.renameProfile("user" + (i % 200), "renamed" + (i % 200));
+                    manager.renameProfile("renamed" + (i % 200), "user" + (i % 200));
+                }
+            } catch (DuplicateProfileException e) {
+                fail(e);
+            }
+        });
+        renamer.start();
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                assertEquals(200, manager.getAllProfiles().size());
+            }
+        } finally {
+            running.set(false);
+            renamer.join();
+        }
+    }
+
+    @Test
+    void testPreferenceUpdateDoesNotResurrectDeletedProfile() throws Exception {
+        TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        Profile old = profile("alice", 30);
+        manager.addProfile(old);
+        manager.deleteProfile("alice");
+        Profile replacement = profile("alice", 45);
+        manager.addProfile(replacement);
+
+        assertNull(manager.updatePreference(old, 20, 30));
+        manager.saveState();
+
+        assertSame(replacement, manager.findProfile("alice"));
+        assertTrue(replacement.getPreferences().isEmpty());
+        assertEquals(1, TestDatabase.count("SELECT COUNT(*) FROM profiles WHERE username = 'alice' AND age = 45"));
+        assertEquals(0, TestDatabase.count("SELECT COUNT(*) FROM match_preferences"));
+        assertNotNull(manager.updatePreference(replacement, 40, 50));
+    }
+}
@@ -0,0 +1,75 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Locale;
+
+public class ProfileQuery {
+    public enum Sort { USERNAME, AGE }
+
+    // The two listing orders, shared by ProfileManager's sorted views and the indexes. Case-folded username
+    // first, then the exact username, so names differing only in case are still distinct entries.
+    public static final Comparator<Profile> USERNAME_ORDER =
+            Comparator.comparing((Profile p) -> p.getUsername().toLowerCase(Locale.ROOT))
+                    .thenComparing(Profile::getUsername);
+    public static final Comparator<Profile> AGE_ORDER =
+            Comparator.comparingInt(Profile::getAge).thenComparing(USERNAME_ORDER);
+
+    private Sort sort = Sort.USERNAME;
+    private String interest;
+    private int minAge = Integer.MIN_VALUE;
+    private int maxAge = Integer.MAX_VALUE;
+    private int limit = Integer.MAX_VALUE;
+
+    // Position after which the page starts, decoded from the cursor of the previous page
+    private String afterUsername;
+    private int afterAge;
+
+    public Sort getSort() { return sort; }
+    public String getInterest() { return interest; }
+    public int getMinAge() { return minAge; }
+    public int getMaxAge() { return maxAge; }
+    public int getLimit() { return limit; }
+    public String getAfterUsername() { return afterUsername; }
+    public int getAfterAge() { return afterAge; }
+    public boolean hasCursor() { return afterUsername != null; }
+
+    public void setSort(Sort sort) { this.sort = sort; }
+    public void setInterest(String interest) { this.interest = interest; }
+    public void setMinAge(int minAge) { this.minAge = minAge; }
+    public void setMaxAge(int maxAge) { this.maxAge = maxAge; }
+    public void setLimit(int limit) { this.limit = limit; }
+
+    public boolean matches(Profile p) {
+        if (p.getAge() < minAge || p.getAge() > maxAge) return false;
+        return interest == null || interest.equalsIgnoreCase(p.getPrimaryInterest().getName());
+    }
+
+    // Cursor is opaque to clients: the sort position of the last profile on the page, base64url encoded
+    public String cursorAfter(Profile last) {
+        String position = sort == Sort.AGE ? last.getAge() + ":" + last.getUsername() : last.getUsername();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void setCursor(String cursor) {
+        String position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        if (sort == Sort.AGE) {
+            int colon = position.indexOf(':');
+            if (colon < 0) throw new IllegalArgumentException("Invalid cursor.");
+            try {
+                afterAge = Integer.parseInt(position.substring(0, colon));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            afterUsername = position.substring(colon + 1);
+        } else {
+            afterUsername = position;
+        }
+    }
+}
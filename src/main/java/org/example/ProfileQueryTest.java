@@ -0,0 +1,161 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileQueryTest {
+    private static final String[] INTERESTS = {"Hiking", "Gaming", "Reading", "Cooking", "Fitness"};
+
+    private static ProfileManager populate() {
+        ProfileManager manager = new ProfileManager();
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            // Mixed case, so the case-folded order differs from the raw one
+            String username = (i % 3 == 0 ? "User" : "user") + random.nextInt(100_000) + "_" + i;
+            manager.addProfile(new Profile(username, 18 + random.nextInt(60),
+                    Interest.of(INTERESTS[random.nextInt(INTERESTS.length)]), new ArrayList<>()));
+        }
+        // Legacy row outside the indexed age range
+        manager.addProfile(new Profile("legacy", 200, Interest.of("Hiking"), new ArrayList<>()));
+        return manager;
+    }
+
+    private static ProfileQuery query(ProfileQuery.Sort sort, Consumer<ProfileQuery> filters, String cursor) {
+        ProfileQuery query = new ProfileQuery();
+        query.setSort(sort);
+        filters.accept(query);
+        if (cursor != null) query.setCursor(cursor);
+        return query;
+    }
+
+    // Follows the cursors page by page, as a client of GET /api/profiles would
+    private static List<String> pageThrough(ProfileManager manager, ProfileQuery.Sort sort,
+                                            Consumer<ProfileQuery> filters, int pageSize) {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        while (true) {
+            ProfileQuery query = query(sort, filters, cursor);
+            Iterator<Profile> results = manager.queryProfiles(query);
+            Profile last = null;
+            for (int i = 0; i < pageSize && results.hasNext(); i++) {
+                last = results.next();
+                seen.add(last.getUsername());
+            }
+            if (last == null || !results.hasNext()) return seen;
+            cursor = query.cursorAfter(last);
+        }
+    }
+
+    private static List<String> expected(ProfileManager manager, ProfileQuery.Sort sort,
+                                         Consumer<ProfileQuery> filters) {
+        ProfileQuery query = query(sort, filters, null);
+        return manager.getAllProfiles().stream()
+                .filter(query::matches)
+                .sorted(sort == ProfileQuery.Sort.AGE ? ProfileQuery.AGE_ORDER : ProfileQuery.USERNAME_ORDER)
+                .map(Profile::getUsername)
+                .collect(Collectors.toList());
+    }
+
+    private static void assertPages(ProfileManager manager, ProfileQuery.Sort sort, Consumer<ProfileQuery> filters) {
+        List<String> expected = expected(manager, sort, filters);
+        assertFalse(expected.isEmpty());
+        for (int pageSize : new int[]{1, 7, 1000}) {
+            assertEquals(expected, pageThrough(manager, sort, filters, pageSize), sort + " pages of " + pageSize);
+        }
+    }
+
+    @Test
+    void testInterestFilterPagesInBothOrders() {
+        ProfileManager manager = populate();
+        for (ProfileQuery.Sort sort : ProfileQuery.Sort.values()) {
+            assertPages(manager, sort, q -> q.setInterest("hiking"));
+        }
+    }
+
+    @Test
+    void testAgeFilterPagesInBothOrders() {
+        ProfileManager manager = populate();
+        for (ProfileQuery.Sort sort : ProfileQuery.Sort.values()) {
+            assertPages(manager, sort, q -> {
+                q.setMinAge(30);
+                q.setMaxAge(40);
+            });
+            assertPages(manager, sort, q -> q.setMinAge(70));
+        }
+    }
+
+    @Test
+    void testCombinedFiltersPickEitherIndex() {
+        ProfileManager manager = populate();
+        for (ProfileQuery.Sort sort : ProfileQuery.Sort.values()) {
+            // Narrow age range: the age buckets are the smaller source
+            assertPages(manager, sort, q -> {
+                q.setInterest("Gaming");
+                q.setMinAge(25);
+                q.setMaxAge(26);
+            });
+            // Wide age range: the interest index is the smaller source
+            assertPages(manager, sort, q -> {
+                q.setInterest("Gaming");
+                q.setMinAge(0);
+                q.setMaxAge(150);
+            });
+        }
+    }
+
+    @Test
+    void testUnknownInterestAndLegacyAges() {
+        ProfileManager manager = populate();
+        assertFalse(manager.queryProfiles(query(ProfileQuery.Sort.USERNAME, q -> q.setInterest("Knitting"), null))
+                .hasNext());
+        assertEquals(List.of("legacy"), pageThrough(manager, ProfileQuery.Sort.USERNAME, q -> q.setMinAge(151), 5));
+        assertEquals(List.of("legacy"), pageThrough(manager, ProfileQuery.Sort.AGE, q -> {
+            q.setInterest("Hiking");
+            q.setMinAge(151);
+        }, 5));
+    }
+
+    @Test
+    void testCursorSurvivesChangesBetweenPages() throws Exception {
+        TestDatabase.create(false);
+        ProfileManager manager = populate();
+        Consumer<ProfileQuery> hiking = q -> q.setInterest("Hiking");
+        ProfileQuery first = query(ProfileQuery.Sort.USERNAME, hiking, null);
+        Iterator<Profile> results = manager.queryProfiles(first);
+        List<Profile> page = new ArrayList<>();
+        for (int i = 0; i < 10; i++) page.add(results.next());
+        String cursor = first.cursorAfter(page.get(9));
+
+        // The last profile of the page is renamed past the end and the next one is deleted
+        List<String> rest = expected(manager, ProfileQuery.Sort.USERNAME, hiking).subList(10, 20);
+        manager.renameProfile(page.get(9).getUsername(), "zzz-renamed");
+        manager.deleteProfile(rest.get(0));
+
+        Iterator<Profile> next = manager.queryProfiles(query(ProfileQuery.Sort.USERNAME, hiking, cursor));
+        assertEquals(rest.get(1), next.next().getUsername());
+    }
+
+    @Test
+    void testAgeChangeMovesProfileInInterestAgeOrder() throws Exception {
+        TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        manager.addProfile(new Profile("alice", 30, Interest.of("Reading"), new ArrayList<>()));
+        manager.addProfile(new Profile("bob", 40, Interest.of("Reading"), new ArrayList<>()));
+        manager.saveState();
+
+        assertTrue(manager.updateProfileAge("alice", 50));
+
+        assertEquals(List.of("bob", "alice"),
+                pageThrough(manager, ProfileQuery.Sort.AGE, q -> q.setInterest("Reading"), 1));
+        assertEquals(List.of("alice"), pageThrough(manager, ProfileQuery.Sort.USERNAME, q -> {
+            q.setInterest("Reading");
+            q.setMinAge(45);
+        }, 1));
+    }
+}
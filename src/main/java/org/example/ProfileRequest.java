@@ -0,0 +1,29 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Fields of a JSON request body as read by ProfileRequestParser; null for keys the body did not contain
+public class ProfileRequest {
+    private String username;
+    private Integer age;
+    private String interest;
+    private String role;
+    private List<MatchPreference> preferences;
+
+    public String getUsername() { return username; }
+    public Integer getAge() { return age; }
+    public String getInterest() { return interest; }
+    public String getRole() { return role; }
+
+    // Never null; empty when the body had no "preferences" array
+    public List<MatchPreference> getPreferences() {
+        return preferences == null ? new ArrayList<>() : preferences;
+    }
+
+    void setUsername(String username) { this.username = username; }
+    void setAge(Integer age) { this.age = age; }
+    void setInterest(String interest) { this.interest = interest; }
+    void setRole(String role) { this.role = role; }
+    void setPreferences(List<MatchPreference> preferences) { this.preferences = preferences; }
+}
@@ -0,0 +1,402 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Single-pass JSON tokenizer for profile request bodies. Reads the body into a buffer that is kept between
+// requests, walks it once and fills a ProfileRequest; only the string values it returns are allocated.
+// Accepts any valid JSON object: whitespace anywhere, escaped characters, keys in any order, and unknown keys
+// with values of any type (skipped). "age" may be a number or a string holding one, as the frontend sends it.
+//
+// Not thread-safe; use one parser per thread or take them from a pool.
+public class ProfileRequestParser {
+    public static final int DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+    // Nesting allowed inside skipped values, so a hostile body cannot overflow the stack
+    private static final int MAX_DEPTH = 32;
+
+    private static final byte[] USERNAME = ascii("username");
+    private static final byte[] AGE = ascii("age");
+    private static final byte[] INTEREST = ascii("interest");
+    private static final byte[] ROLE = ascii("role");
+    private static final byte[] PREFERENCES = ascii("preferences");
+    private static final byte[] MIN_AGE = ascii("minAge");
+    private static final byte[] MAX_AGE = ascii("maxAge");
+
+    private final int maxBodyBytes;
+    private byte[] buffer = new byte[1024];
+
+    // Current parse
+    private byte[] in;
+    private int pos;
+    private int limit;
+    // Key just read, as a range of the input (keys with escapes are decoded into keyBytes instead)
+    private byte[] keyBytes;
+    private int keyStart;
+    private int keyEnd;
+
+    public ProfileRequestParser() {
+        this(DEFAULT_MAX_BODY_BYTES);
+    }
+
+    public ProfileRequestParser(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Reads the whole stream (up to the size limit) into the reused buffer and parses it
+    public ProfileRequest parse(InputStream stream) throws IOException, MalformedRequestException {
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                if (length >= maxBodyBytes) {
+                    if (stream.read() == -1) break;
+                    throw new RequestTooLargeException(maxBodyBytes);
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(maxBodyBytes, length * 2));
+            }
+            int read = stream.read(buffer, length, buffer.length - length);
+            if (read == -1) break;
+            length += read;
+        }
+        return parse(buffer, 0, length);
+    }
+
+    public ProfileRequest parse(byte[] bytes, int offset, int length) throws MalformedRequestException {
+        if (length > maxBodyBytes) throw new RequestTooLargeException(maxBodyBytes);
+        in = bytes;
+        pos = offset;
+        limit = offset + length;
+        try {
+            ProfileRequest request = new ProfileRequest();
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    readKey();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    readField(request);
+                    skipWhitespace();
+                    int c = next();
+                    if (c == '}') break;
+                    if (c != ',') throw error("Expected ',' or '}'");
+                    skipWhitespace();
+                }
+            }
+            skipWhitespace();
+            if (pos != limit) throw error("Unexpected data after the object");
+            return request;
+        } finally {
+            in = null;
+        }
+    }
+
+    private void readField(ProfileRequest request) throws MalformedRequestException {
+        if (keyIs(USERNAME)) {
+            request.setUsername(readNullableString());
+        } else if (keyIs(AGE)) {
+            request.setAge(readAge());
+        } else if (keyIs(INTEREST)) {
+            request.setInterest(readNullableString());
+        } else if (keyIs(ROLE)) {
+            request.setRole(readNullableString());
+        } else if (keyIs(PREFERENCES)) {
+            request.setPreferences(readPreferences());
+        } else {
+            skipValue(0);
+        }
+    }
+
+    // [{"minAge": 20, "maxAge": 30}, ...]; other keys inside an entry are ignored
+    private List<MatchPreference> readPreferences() throws MalformedRequestException {
+        if (readLiteralNull()) return null;
+        List<MatchPreference> preferences = new ArrayList<>();
+        expect('[');
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return preferences;
+        }
+        while (true) {
+            skipWhitespace();
+            expect('{');
+            Integer minAge = null;
+            Integer maxAge = null;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    readKey();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    if (keyIs(MIN_AGE)) {
+                        minAge = readInt();
+                    } else if (keyIs(MAX_AGE)) {
+                        maxAge = readInt();
+                    } else {
+                        skipValue(1);
+                    }
+                    skipWhitespace();
+                    int c = next();
+                    if (c == '}') break;
+                    if (c != ',') throw error("Expected ',' or '}'");
+                    skipWhitespace();
+                }
+            }
+            if (minAge == null || maxAge == null) throw error("Preference needs minAge and maxAge");
+            preferences.add(new MatchPreference(minAge, maxAge));
+            skipWhitespace();
+            int c = next();
+            if (c == ']') return preferences;
+            if (c != ',') throw error("Expected ',' or ']'");
+        }
+    }
+
+    private Integer readAge() throws MalformedRequestException {
+        if (readLiteralNull()) return null;
+        if (peek() != '"') return readInt();
+        // Quoted number, e.g. from a form field
+        pos++;
+        while (pos < limit && in[pos] == ' ') pos++;
+        int age = readInt();
+        while (pos < limit && in[pos] == ' ') pos++;
+        if (pos >= limit || in[pos] != '"') throw error("Age must be a whole number");
+        pos++;
+        return age;
+    }
+
+    private int readInt() throws MalformedRequestException {
+        boolean negative = false;
+        if (pos < limit && in[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        int start = pos;
+        long value = 0;
+        while (pos < limit && in[pos] >= '0' && in[pos] <= '9') {
+            value = value * 10 + (in[pos++] - '0');
+            if (value > Integer.MAX_VALUE + 1L) throw error("Number out of range");
+        }
+        if (pos == start) throw error("Expected a whole number");
+        if (pos < limit && (in[pos] == '.' || in[pos] == 'e' || in[pos] == 'E')) throw error("Expected a whole number");
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) throw error("Number out of range");
+        return (int) value;
+    }
+
+    private String readNullableString() throws MalformedRequestException {
+        if (readLiteralNull()) return null;
+        return readString();
+    }
+
+    private boolean readLiteralNull() throws MalformedRequestException {
+        if (peek() != 'n') return false;
+        expectLiteral("null");
+        return true;
+    }
+
+    private String readString() throws MalformedRequestException {
+        expect('"');
+        int start = pos;
+        while (pos < limit) {
+            byte b = in[pos];
+            if (b == '"') {
+                String value = new String(in, start, pos - start, StandardCharsets.UTF_8);
+                pos++;
+                return value;
+            }
+            if (b == '\\') return readEscapedString(start);
+            if ((b & 0xFF) < 0x20) throw error("Control character in string");
+            pos++;
+        }
+        throw error("Unterminated string");
+    }
+
+    // Slow path, only taken by strings that contain escapes
+    private String readEscapedString(int start) throws MalformedRequestException {
+        StringBuilder value = new StringBuilder(new String(in, start, pos - start, StandardCharsets.UTF_8));
+        int segment = pos;
+        while (pos < limit) {
+            byte b = in[pos];
+            if (b == '"' || b == '\\') {
+                value.append(new String(in, segment, pos - segment, StandardCharsets.UTF_8));
+                pos++;
+                if (b == '"') return value.toString();
+                value.append(readEscape());
+                segment = pos;
+            } else {
+                if ((b & 0xFF) < 0x20) throw error("Control character in string");
+                pos++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private char readEscape() throws MalformedRequestException {
+        int c = next();
+        switch (c) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                if (limit - pos < 4) throw error("Truncated \\u escape");
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(in[pos++], 16);
+                    if (digit < 0) throw error("Invalid \\u escape");
+                    code = code * 16 + digit;
+                }
+                return (char) code;
+            default:
+                throw error("Invalid escape");
+        }
+    }
+
+    private void readKey() throws MalformedRequestException {
+        if (peek() != '"') throw error("Expected a key");
+        int start = pos + 1;
+        int end = start;
+        while (end < limit && in[end] != '"' && in[end] != '\\') end++;
+        if (end < limit && in[end] == '"') {
+            keyBytes = in;
+            keyStart = start;
+            keyEnd = end;
+            pos = end + 1;
+        } else {
+            // Escaped key: rare, decode it
+            keyBytes = readString().getBytes(StandardCharsets.UTF_8);
+            keyStart = 0;
+            keyEnd = keyBytes.length;
+        }
+    }
+
+    private boolean keyIs(byte[] name) {
+        return Arrays.equals(keyBytes, keyStart, keyEnd, name, 0, name.length);
+    }
+
+    private void skipValue(int depth) throws MalformedRequestException {
+        if (depth > MAX_DEPTH) throw error("Nested too deeply");
+        int c = peek();
+        switch (c) {
+            case '"':
+                skipString();
+                return;
+            case '{':
+                pos++;
+                skipWhitespace();
+                if (peek() == '}') {
+                    pos++;
+                    return;
+                }
+                while (true) {
+                    skipWhitespace();
+                    skipString();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    skipValue(depth + 1);
+                    skipWhitespace();
+                    int end = next();
+                    if (end == '}') return;
+                    if (end != ',') throw error("Expected ',' or '}'");
+                }
+            case '[':
+                pos++;
+                skipWhitespace();
+                if (peek() == ']') {
+                    pos++;
+                    return;
+                }
+                while (true) {
+                    skipWhitespace();
+                    skipValue(depth + 1);
+                    skipWhitespace();
+                    int end = next();
+                    if (end == ']') return;
+                    if (end != ',') throw error("Expected ',' or ']'");
+                }
+            case 't':
+                expectLiteral("true");
+                return;
+            case 'f':
+                expectLiteral("false");
+                return;
+            case 'n':
+                expectLiteral("null");
+                return;
+            default:
+                skipNumber();
+        }
+    }
+
+    private void skipString() throws MalformedRequestException {
+        expect('"');
+        while (pos < limit) {
+            byte b = in[pos++];
+            if (b == '"') return;
+            if (b == '\\') readEscape();
+            else if ((b & 0xFF) < 0x20) throw error("Control character in string");
+        }
+        throw error("Unterminated string");
+    }
+
+    private void skipNumber() throws MalformedRequestException {
+        int start = pos;
+        while (pos < limit) {
+            byte b = in[pos];
+            if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') pos++;
+            else break;
+        }
+        if (pos == start) throw error("Unexpected character");
+    }
+
+    private void expectLiteral(String literal) throws MalformedRequestException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (next() != literal.charAt(i)) throw error("Invalid literal");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < limit) {
+            byte b = in[pos];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') return;
+            pos++;
+        }
+    }
+
+    private int peek() throws MalformedRequestException {
+        if (pos >= limit) throw error("Unexpected end of body");
+        return in[pos];
+    }
+
+    private int next() throws MalformedRequestException {
+        if (pos >= limit) throw error("Unexpected end of body");
+        return in[pos++];
+    }
+
+    private void expect(char c) throws MalformedRequestException {
+        if (next() != c) throw error("Expected '" + c + "'");
+    }
+
+    private MalformedRequestException error(String message) {
+        return new MalformedRequestException(message + " at byte " + pos + ".");
+    }
+}
@@ -0,0 +1,126 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileRequestParserTest {
+
+    private static ProfileRequest parse(String json) throws Exception {
+        return new ProfileRequestParser().parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testParsesWhitespaceEscapesAndKeyOrder() throws Exception {
+        ProfileRequest request = parse(" {\n \"interest\" : \"Hiking\",\t\"age\" :  29 ,"
+                + " \"username\": \"al\\\"ice\\\\ \\u00e9\\n\" } ");
+
+        assertEquals("al\"ice\\ \u00e9\n", request.getUsername());
+        assertEquals(29, request.getAge());
+        assertEquals("Hiking", request.getInterest());
+    }
+
+    @Test
+    void testAgeAsStringPreferencesAndUnknownKeys() throws Exception {
+        ProfileRequest request = parse("{\"username\":\"bob\",\"age\":\"31\",\"extra\":{\"a\":[1,2.5e3,true,null]},"
+                + "\"preferences\":[{\"minAge\":20,\"maxAge\":30},{\"maxAge\":50,\"note\":\"x\",\"minAge\":40}]}");
+
+        assertEquals(31, request.getAge());
+        assertNull(request.getInterest());
+        assertEquals(2, request.getPreferences().size());
+        assertEquals(40, request.getPreferences().get(1).getMinAge());
+        assertEquals(50, request.getPreferences().get(1).getMaxAge());
+    }
+
+    @Test
+    void testRejectsMalformedBodies() {
+        String[] bodies = {"", "{", "[]", "{\"age\":}", "{\"age\":1.5}", "{\"age\":\"x\"}", "{\"username\":\"a\"} x",
+                "{\"username\":\"a\",}", "{\"username\":\"a", "{\"age\":99999999999}", "{\"username\":\"\\q\"}",
+                "{\"preferences\":[{\"minAge\":1}]}"};
+        for (String body : bodies) {
+            assertThrows(MalformedRequestException.class, () -> parse(body), body);
+        }
+    }
+
+    @Test
+    void testEnforcesMaxBodySize() {
+        ProfileRequestParser parser = new ProfileRequestParser(32);
+        byte[] body = ("{\"username\":\"" + "a".repeat(64) + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(RequestTooLargeException.class, () -> parser.parse(new ByteArrayInputStream(body)));
+    }
+
+    // Random byte edits of a valid body must either parse or fail with MalformedRequestException, never anything else
+    @Test
+    void testFuzzMutatedBodies() {
+        byte[] valid = ("{\"username\":\"alice\",\"age\":29,\"interest\":\"Hiking\","
+                + "\"preferences\":[{\"minAge\":25,\"maxAge\":35}],\"x\":{\"y\":[1,\"\\u0041\"]}}")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] alphabet = "{}[]:,\"\\ 0123456789-.eEtrufalsn\n".getBytes(StandardCharsets.US_ASCII);
+        Random random = new Random(7);
+        ProfileRequestParser parser = new ProfileRequestParser();
+
+        for (int i = 0; i < 20_000; i++) {
+            byte[] body = valid.clone();
+            int edits = 1 + random.nextInt(4);
+            for (int e = 0; e < edits; e++) {
+                int at = random.nextInt(body.length);
+                body[at] = random.nextBoolean() ? alphabet[random.nextInt(alphabet.length)] : (byte) random.nextInt(256);
+            }
+            int length = random.nextInt(10) == 0 ? random.nextInt(body.length) : body.length;
+            try {
+                parser.parse(body, 0, length);
+            } catch (MalformedRequestException expected) {
+                // fine
+            }
+        }
+    }
+
+    // Any string written by ProfileJsonWriter must read back unchanged
+    @Test
+    void testFuzzStringRoundTrip() throws Exception {
+        Random random = new Random(11);
+        ProfileRequestParser parser = new ProfileRequestParser();
+
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int c = 0; c < length; c++) {
+                int codePoint;
+                switch (random.nextInt(4)) {
+                    case 0: codePoint = random.nextInt(0x20); break;
+                    case 1: codePoint = "\"\\/".charAt(random.nextInt(3)); break;
+                    case 2: codePoint = 0x20 + random.nextInt(0x5F); break;
+                    default: codePoint = random.nextBoolean() ? 0xA0 + random.nextInt(0xD000) : 0x1F600 + random.nextInt(80);
+                }
+                name.appendCodePoint(codePoint);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ProfileJsonWriter writer = new ProfileJsonWriter(out);
+            writer.writeProfile(new Profile(name.toString(), 30, new Interest("Gaming"), new java.util.ArrayList<>()));
+            writer.flush();
+            byte[] body = out.toByteArray();
+
+            ProfileRequest request = parser.parse(body, 0, body.length);
+            assertEquals(name.toString(), request.getUsername());
+            assertEquals(30, request.getAge());
+        }
+    }
+
+    @Test
+    void testParserIsReusable() throws IOException, MalformedRequestException {
+        ProfileRequestParser parser = new ProfileRequestParser();
+        byte[] big = ("{\"username\":\"" + "b".repeat(5000) + "\",\"age\":1}").getBytes(StandardCharsets.UTF_8);
+        byte[] small = "{\"username\":\"c\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(5000, parser.parse(new ByteArrayInputStream(big)).getUsername().length());
+        ProfileRequest request = parser.parse(new ByteArrayInputStream(small));
+        assertEquals("c", request.getUsername());
+        assertNull(request.getAge());
+    }
+}
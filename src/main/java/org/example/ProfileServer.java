@@ -3,44 +3,182 @@ package org.example;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.nio.charset.StandardCharsets;
 
 public class ProfileServer {
     private static final int PORT = 8000;
+    private static final int FIXED_POOL_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_MATCHES = 10;
+    private static final int MAX_MATCHES = 100;
+    // Bulk import: profiles per database batch, longest accepted line, errors listed in the response
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+    private static final int MAX_LINE_BYTES = 16 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    // Change stream: open connections allowed, keep-alive comment interval, client reconnect delay
+    private static final int MAX_STREAMS = 1000;
+    private static final int HEARTBEAT_SECONDS = 15;
+    private static final int RETRY_MILLIS = 3000;
+    private static final byte[] HEARTBEAT = ascii(": keep-alive\n\n");
+    // Larger listings are streamed on every request instead of being kept encoded in memory
+    private static final int MAX_CACHED_LISTING = 100_000;
+    // The listing may change at any time, so clients revalidate; the interests only change with a new build
+    private static final String LISTING_CACHE_CONTROL = "no-cache";
+    private static final String INTERESTS_CACHE_CONTROL = "public, max-age=3600";
+
+    // FIXED: bounded pool of platform threads. VIRTUAL: one virtual thread per exchange,
+    // with database concurrency capped by the limiter in Database instead of by the thread count.
+    public enum ExecutorMode { FIXED, VIRTUAL }
+
     private final ProfileManager manager;
+    private final ExecutorMode executorMode;
+    private final int port;
+    private HttpServer server;
+    private ExecutorService executor;
+    // One thread per open change stream, so streams never hold a request worker
+    private ExecutorService streamExecutor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    // Encoded full listing for one data version; ETags also carry the start time, as versions restart from 0
+    private volatile CachedResponse listingCache;
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    // Parsers keep their buffer between requests; extra ones created under load are dropped again
+    private final BlockingQueue<ProfileRequestParser> parsers = new ArrayBlockingQueue<>(FIXED_POOL_SIZE * 4);
 
     public ProfileServer(ProfileManager manager) {
+        this(manager, ExecutorMode.valueOf(System.getProperty("server.executor", "fixed").toUpperCase()), PORT);
+    }
+
+    public ProfileServer(ProfileManager manager, ExecutorMode executorMode, int port) {
         this.manager = manager;
+        this.executorMode = executorMode;
+        this.port = port;
+    }
+
+    private static ExecutorService createStreamExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stream-", 0).factory());
+    }
+
+    static ExecutorService createExecutor(ExecutorMode mode) {
+        if (mode == ExecutorMode.VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("api-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(FIXED_POOL_SIZE);
     }
 
     public void start() {
         try {
-            HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 0);
+            server = HttpServer.create(new InetSocketAddress(port), 0);
 
-            server.createContext("/api/profiles", new ProfileHandler());
-            server.createContext("/api/interests", new InterestHandler());
+            server.createContext("/api/profiles", timed("/api/profiles", new ProfileHandler()));
+            server.createContext("/api/profiles/bulk", timed("/api/profiles/bulk", new BulkImportHandler()));
+            server.createContext("/api/profiles/export", timed("/api/profiles/export", new ExportHandler()));
+            server.createContext("/api/profiles/stream", timed("/api/profiles/stream", new StreamHandler()));
+            server.createContext("/api/interests", timed("/api/interests", new InterestHandler()));
+            server.createContext("/api/matches", timed("/api/matches", new MatchHandler()));
+            server.createContext("/api/metrics", timed("/api/metrics", new MetricsHandler()));
 
-            server.createContext("/api/admin/role", new AdminHandler());
+            server.createContext("/api/admin/role", timed("/api/admin/role", new AdminHandler()));
 
-            server.setExecutor(Executors.newFixedThreadPool(10));
+            executor = createExecutor(executorMode);
+            server.setExecutor(executor);
+            streamExecutor = createStreamExecutor();
+            registerGauges();
             server.start();
-            System.out.println(">> Web API Server started on port " + PORT);
+            System.out.println(">> Web API Server started on port " + port + " (" + executorMode + " executor)");
             System.out.println(">> Ready to accept React requests.");
         } catch (IOException e) {
             System.err.println("Server failed to start: " + e.getMessage());
         }
     }
 
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+        // Interrupts the stream threads waiting for changes
+        if (streamExecutor != null) streamExecutor.shutdownNow();
+    }
+
+    // Records the latency of every exchange per route and method, and counts responses per status code
+    private HttpHandler timed(String route, HttpHandler handler) {
+        String routeLabel = Metrics.label("route", route);
+        return exchange -> {
+            long start = System.nanoTime();
+            inFlight.incrementAndGet();
+            try {
+                handler.handle(exchange);
+            } finally {
+                inFlight.decrementAndGet();
+                String method = methodLabel(exchange.getRequestMethod());
+                Metrics.histogram("http_request_duration_seconds", "Time to handle an API request.",
+                        routeLabel + "," + method).record(System.nanoTime() - start);
+                Metrics.counter("http_responses_total", "API responses by status code.",
+                        routeLabel + "," + Metrics.label("code", Integer.toString(exchange.getResponseCode()))).increment();
+            }
+        };
+    }
+
+    // Known methods only, so arbitrary request methods cannot create new series
+    private static String methodLabel(String method) {
+        switch (method) {
+            case "GET": case "POST": case "PUT": case "DELETE": case "OPTIONS": case "HEAD":
+                return Metrics.label("method", method);
+            default:
+                return Metrics.label("method", "OTHER");
+        }
+    }
+
+    private void registerGauges() {
+        ExecutorService current = executor;
+        Metrics.gauge("http_executor_queue_depth", "Requests waiting for a worker thread (always 0 for virtual threads).",
+                "", () -> current instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) current).getQueue().size() : 0);
+        Metrics.gauge("http_requests_in_flight", "Requests currently being handled.", "", inFlight::get);
+        Metrics.gauge("profile_streams_open", "Open /api/profiles/stream connections.", "", openStreams::get);
+        ProfileChangeFeed feed = manager.getChangeFeed();
+        Metrics.counterFunction("profile_change_events_total", "Profile changes published to the change stream.",
+                "", feed::getEventCount);
+    }
+
+    class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, "{\"error\": \"Method not allowed\"}", 405);
+                return;
+            }
+            byte[] body = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+
     class ProfileHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
             exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, DELETE, PUT, OPTIONS");
             exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+            exchange.getResponseHeaders().add("Access-Control-Expose-Headers", "X-Next-Cursor, X-Last-Event-Id, ETag");
 
             if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
                 exchange.sendResponseHeaders(204, -1);
@@ -48,34 +186,34 @@ public class ProfileServer {
             }
 
             if ("GET".equals(exchange.getRequestMethod())) {
-                StringBuilder json = new StringBuilder("[");
-                List<Profile> profiles = manager.getAllProfiles();
-                for (int i = 0; i < profiles.size(); i++) {
-                    Profile p = profiles.get(i);
-                    json.append(String.format("{\"username\":\"%s\", \"age\":%d, \"interest\":\"%s\"}",
-                            p.getUsername(), p.getAge(), p.getPrimaryInterest().getName()));
-                    if (i < profiles.size() - 1) json.append(",");
+                String query = exchange.getRequestURI().getRawQuery();
+                if (query == null || query.isEmpty()) {
+                    sendProfileListing(exchange);
+                    return;
                 }
-                json.append("]");
 
-                sendResponse(exchange, json.toString(), 200);
+                ProfileQuery profileQuery;
+                try {
+                    profileQuery = parseProfileQuery(parseQuery(query));
+                } catch (IllegalArgumentException e) {
+                    sendResponse(exchange, "{\"error\": \"" + e.getMessage() + "\"}", 400);
+                    return;
+                }
+                sendProfilePage(exchange, profileQuery);
 
             } else if ("POST".equals(exchange.getRequestMethod())) {
-                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-
                 try {
-                    String name = extractValue(body, "username");
-                    String ageStr = extractValue(body, "age");
-                    String interestName = extractValue(body, "interest");
-
-                    int age = Integer.parseInt(ageStr);
-                    manager.addProfile(new Profile(name, age, new Interest(interestName), new java.util.ArrayList<>()));
+                    Profile profile = toProfile(readRequest(exchange));
+                    manager.createProfile(profile);
 
                     sendResponse(exchange, "{\"message\": \"Profile created\"}", 201);
-                    System.out.println("[API] Created profile: " + name);
-                } catch (Exception e) {
+                    System.out.println("[API] Created profile: " + profile.getUsername());
+                } catch (DuplicateProfileException e) {
+                    sendResponse(exchange, "{\"error\": \"Username already exists\"}", 409);
+                } catch (RequestTooLargeException e) {
+                    sendResponse(exchange, "{\"error\": \"Request body too large\"}", 413);
+                } catch (MalformedRequestException | InvalidAgeException e) {
                     sendResponse(exchange, "{\"error\": \"Invalid Data\"}", 400);
-                    e.printStackTrace();
                 }
             } else if ("PUT".equals(exchange.getRequestMethod())) {
                 String query = exchange.getRequestURI().getQuery();
@@ -92,15 +230,15 @@ public class ProfileServer {
                     }
                 }
 
-                boolean found = false;
-                for (Profile p : manager.getAllProfiles()) {
-                    if (p.getUsername().equalsIgnoreCase(currentName)) {
-                        p.setUsername(newName);
-                        manager.saveState();
-                        found = true;
-                        break;
-                    }
+                boolean found;
+                try {
+                    found = manager.renameProfile(currentName, newName);
+                } catch (DuplicateProfileException e) {
+                    sendResponse(exchange, "{\"error\": \"Username already exists\"}", 409);
+                    return;
                 }
+                // Durable through the write-ahead log when it is enabled
+                if (found && manager.getWriteAheadLog() == null) manager.saveState();
 
                 if (found) {
                     sendResponse(exchange, "{\"message\": \"Renamed successfully\"}", 200);
@@ -131,6 +269,324 @@ public class ProfileServer {
         }
     }
 
+    // POST /api/profiles/bulk: one JSON profile per line. Lines are read and imported in chunks, so memory use
+    // does not depend on the upload size. Answers with counts, rows/sec and the first errors by line number.
+    class BulkImportHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
+            exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+
+            if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, "Method not allowed", 405);
+                return;
+            }
+
+            long startTime = System.nanoTime();
+            int imported = 0;
+            int failed = 0;
+            List<Integer> errorLines = new ArrayList<>();
+            List<String> errorMessages = new ArrayList<>();
+            // Parse errors in the current chunk, merged with its import errors so the response stays in line order
+            List<Integer> parseErrorLines = new ArrayList<>();
+            List<String> parseErrorMessages = new ArrayList<>();
+
+            List<Profile> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            List<Integer> chunkLines = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            LineBuffer line = new LineBuffer();
+            ProfileRequestParser parser = new ProfileRequestParser(MAX_LINE_BYTES);
+            InputStream in = new BufferedInputStream(exchange.getRequestBody(), 64 * 1024);
+            int lineNumber = 0;
+            int length;
+
+            while ((length = readLine(in, line)) != -1) {
+                lineNumber++;
+                String error = null;
+                if (length == -2) {
+                    error = "Line longer than " + MAX_LINE_BYTES + " bytes.";
+                } else {
+                    if (line.isBlank()) continue;
+                    try {
+                        chunk.add(toProfile(parser.parse(line.bytes(), 0, line.size())));
+                        chunkLines.add(lineNumber);
+                    } catch (InvalidAgeException | MalformedRequestException e) {
+                        error = e.getMessage();
+                    }
+                }
+                if (error != null) {
+                    failed++;
+                    if (parseErrorLines.size() < MAX_REPORTED_ERRORS) {
+                        parseErrorLines.add(lineNumber);
+                        parseErrorMessages.add(error);
+                    }
+                }
+
+                if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                    int[] result = importChunk(chunk, chunkLines, parseErrorLines, parseErrorMessages,
+                            errorLines, errorMessages);
+                    imported += result[0];
+                    failed += result[1];
+                }
+            }
+            int[] result = importChunk(chunk, chunkLines, parseErrorLines, parseErrorMessages,
+                    errorLines, errorMessages);
+            imported += result[0];
+            failed += result[1];
+
+            double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+            double rowsPerSecond = seconds > 0 ? imported / seconds : imported;
+            System.out.printf("[API] Bulk import: %d imported, %d failed in %.3f s (%.0f rows/sec).%n",
+                    imported, failed, seconds, rowsPerSecond);
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            ProfileJsonWriter writer = new ProfileJsonWriter(body);
+            writer.writeRaw(ascii("{\"imported\":"));
+            writer.writeInt(imported);
+            writer.writeRaw(ascii(",\"failed\":"));
+            writer.writeInt(failed);
+            writer.writeRaw(ascii(",\"seconds\":" + Math.round(seconds * 1000) / 1000.0));
+            writer.writeRaw(ascii(",\"rowsPerSecond\":" + Math.round(rowsPerSecond)));
+            writer.writeRaw(ascii(",\"errors\":["));
+            for (int i = 0; i < errorLines.size(); i++) {
+                writer.writeRaw(ascii(i == 0 ? "{\"line\":" : ",{\"line\":"));
+                writer.writeInt(errorLines.get(i));
+                writer.writeRaw(ascii(",\"error\":"));
+                writer.writeString(errorMessages.get(i));
+                writer.writeRaw(ascii("}"));
+            }
+            writer.writeRaw(ascii("]}"));
+            writer.flush();
+            sendResponse(exchange, body.toString(StandardCharsets.UTF_8), failed > 0 && imported == 0 ? 400 : 200);
+        }
+
+        // Returns {imported, rejected} and empties the chunk. The chunk's parse errors and import errors are
+        // reported together by line number; both lists are already in line order.
+        private int[] importChunk(List<Profile> chunk, List<Integer> chunkLines,
+                                  List<Integer> parseErrorLines, List<String> parseErrorMessages,
+                                  List<Integer> errorLines, List<String> errorMessages) {
+            String[] errors = chunk.isEmpty() ? new String[0] : manager.importProfiles(chunk);
+            int rejected = 0;
+            int parsed = 0;
+            for (int i = 0; i < errors.length; i++) {
+                if (errors[i] == null) continue;
+                rejected++;
+                while (parsed < parseErrorLines.size() && parseErrorLines.get(parsed) < chunkLines.get(i)) {
+                    report(parseErrorLines.get(parsed), parseErrorMessages.get(parsed), errorLines, errorMessages);
+                    parsed++;
+                }
+                report(chunkLines.get(i), errors[i], errorLines, errorMessages);
+            }
+            for (; parsed < parseErrorLines.size(); parsed++) {
+                report(parseErrorLines.get(parsed), parseErrorMessages.get(parsed), errorLines, errorMessages);
+            }
+            int imported = chunk.size() - rejected;
+            if (!chunk.isEmpty()) {
+                Metrics.counter("profile_import_rows_total", "Profiles added through bulk import.", "").add(imported);
+            }
+            chunk.clear();
+            chunkLines.clear();
+            parseErrorLines.clear();
+            parseErrorMessages.clear();
+            return new int[] {imported, rejected};
+        }
+
+        private void report(int line, String error, List<Integer> errorLines, List<String> errorMessages) {
+            if (errorLines.size() < MAX_REPORTED_ERRORS) {
+                errorLines.add(line);
+                errorMessages.add(error);
+            }
+        }
+    }
+
+    // Exposes the backing array, so lines are parsed without copying them
+    private static class LineBuffer extends ByteArrayOutputStream {
+        byte[] bytes() {
+            return buf;
+        }
+
+        boolean isBlank() {
+            for (int i = 0; i < count; i++) {
+                if (buf[i] != ' ' && buf[i] != '\t') return false;
+            }
+            return true;
+        }
+    }
+
+    private ProfileRequest readRequest(HttpExchange exchange) throws IOException, MalformedRequestException {
+        ProfileRequestParser parser = parsers.poll();
+        if (parser == null) parser = new ProfileRequestParser();
+        try {
+            return parser.parse(exchange.getRequestBody());
+        } finally {
+            parsers.offer(parser);
+        }
+    }
+
+    // Rules for a new profile, shared by POST /api/profiles and the bulk import
+    private static Profile toProfile(ProfileRequest request) throws MalformedRequestException, InvalidAgeException {
+        if (request.getUsername() == null || request.getUsername().isEmpty()) {
+            throw new MalformedRequestException("Missing username.");
+        }
+        if (request.getAge() == null) throw new MalformedRequestException("Missing age.");
+        if (request.getInterest() == null) throw new MalformedRequestException("Missing interest.");
+        // Only the offered interests are accepted, so client input never grows the Interest registry
+        Interest interest = ProfileManager.findAvailableInterest(request.getInterest());
+        if (interest == null) throw new MalformedRequestException("Unknown interest: " + request.getInterest());
+        int age = request.getAge();
+        if (age < 0 || age > 150) throw new InvalidAgeException(age);
+        // Same bounds as the age; stored preferences are packed into shorts by the columnar store and snapshot
+        if (request.getPreferences() != null) {
+            for (MatchPreference pref : request.getPreferences()) {
+                if (!AgeIndex.isValidAge(pref.getMinAge())) throw new InvalidAgeException(pref.getMinAge());
+                if (!AgeIndex.isValidAge(pref.getMaxAge())) throw new InvalidAgeException(pref.getMaxAge());
+                if (pref.getMinAge() > pref.getMaxAge()) {
+                    throw new MalformedRequestException("Preference minAge " + pref.getMinAge()
+                            + " is greater than maxAge " + pref.getMaxAge() + ".");
+                }
+            }
+        }
+        return new Profile(request.getUsername(), age, interest, request.getPreferences());
+    }
+
+    // Reads one line into the reused buffer, without the line break. Returns its length, -1 at the end of the
+    // stream, or -2 if the line is longer than MAX_LINE_BYTES (the rest of it is skipped).
+    private static int readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+        line.reset();
+        boolean tooLong = false;
+        int b = in.read();
+        if (b == -1) return -1;
+        while (b != -1 && b != '\n') {
+            if (line.size() < MAX_LINE_BYTES) {
+                if (b != '\r') line.write(b);
+            } else {
+                tooLong = true;
+            }
+            b = in.read();
+        }
+        return tooLong ? -2 : line.size();
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // GET /api/profiles/export: every profile as one JSON line, streamed from the current snapshot
+    class ExportHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, "Method not allowed", 405);
+                return;
+            }
+
+            long startTime = System.nanoTime();
+            List<Profile> profiles = manager.getAllProfiles();
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                ProfileJsonWriter writer = new ProfileJsonWriter(os, 64 * 1024);
+                for (Profile p : profiles) {
+                    writer.writeProfileLine(p);
+                }
+                writer.flush();
+            }
+            double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+            System.out.printf("[API] Exported %d profiles in %.3f s (%.0f rows/sec).%n",
+                    profiles.size(), seconds, seconds > 0 ? profiles.size() / seconds : profiles.size());
+        }
+    }
+
+    // GET /api/profiles/stream: server-sent events for every profile change (created, renamed, age-changed,
+    // deleted). Resumes after the id in Last-Event-ID, which EventSource sends when it reconnects, or in ?since=
+    // (e.g. the X-Last-Event-Id of a listing); without either it starts with the next change. A "reset" event
+    // means changes were missed and the client should load the full list again.
+    class StreamHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, "Method not allowed", 405);
+                return;
+            }
+            if (openStreams.incrementAndGet() > MAX_STREAMS) {
+                openStreams.decrementAndGet();
+                sendResponse(exchange, "{\"error\": \"Too many open streams\"}", 503);
+                return;
+            }
+
+            ProfileChangeFeed feed = manager.getChangeFeed();
+            String resumeId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+            String query = exchange.getRequestURI().getRawQuery();
+            if (resumeId == null && query != null) resumeId = parseQuery(query).get("since");
+
+            long position;
+            boolean reset = false;
+            if (resumeId == null) {
+                position = feed.getLastSequence();
+            } else {
+                position = feed.parseEventId(resumeId);
+                if (position < 0 || !feed.canResumeAfter(position)) {
+                    position = feed.getLastSequence();
+                    reset = true;
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            long start = position;
+            boolean startWithReset = reset;
+            try {
+                streamExecutor.execute(() -> stream(exchange, feed, start, startWithReset));
+            } catch (RejectedExecutionException e) {
+                openStreams.decrementAndGet();
+                exchange.close();
+            }
+        }
+    }
+
+    // Sends each batch of new events as soon as it is published. The shared ring never waits for a stream: one
+    // that falls a whole ring behind is closed, and its client reconnects and gets a reset.
+    private void stream(HttpExchange exchange, ProfileChangeFeed feed, long position, boolean reset) {
+        List<ProfileChangeFeed.Event> batch = new ArrayList<>();
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(ascii("retry: " + RETRY_MILLIS + "\n\n"));
+            if (reset) os.write(feed.resetFrame(position));
+            os.flush();
+            while (true) {
+                batch.clear();
+                long next = feed.read(position, batch, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (next < 0) {
+                    Metrics.counter("profile_streams_dropped_total",
+                            "Change streams closed because the client fell too far behind.", "").increment();
+                    break;
+                }
+                if (next == position) {
+                    os.write(HEARTBEAT);
+                } else {
+                    for (ProfileChangeFeed.Event event : batch) {
+                        os.write(event.frame);
+                    }
+                    position = next;
+                }
+                os.flush();
+            }
+        } catch (IOException e) {
+            // Client went away
+        } catch (InterruptedException e) {
+            // Server stopping
+        } finally {
+            openStreams.decrementAndGet();
+            exchange.close();
+        }
+    }
+
     class AdminHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -144,8 +600,13 @@ public class ProfileServer {
             }
 
             if ("POST".equals(exchange.getRequestMethod())) {
-                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-                String role = extractValue(body, "role");
+                String role;
+                try {
+                    role = readRequest(exchange).getRole();
+                } catch (MalformedRequestException e) {
+                    sendResponse(exchange, "{\"error\": \"Invalid Data\"}", 400);
+                    return;
+                }
 
                 if ("admin".equals(role)) {
                     Database.setCredentials("postgres", "1234");
@@ -162,16 +623,196 @@ public class ProfileServer {
         }
     }
 
+    // GET /api/matches?username=&k=
+    class MatchHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
+
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, "Method not allowed", 405);
+                return;
+            }
+
+            String query = exchange.getRequestURI().getRawQuery();
+            Map<String, String> params = query == null ? new HashMap<>() : parseQuery(query);
+            int k;
+            try {
+                k = params.containsKey("k") ? parseIntParam(params, "k") : DEFAULT_MATCHES;
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, "{\"error\": \"" + e.getMessage() + "\"}", 400);
+                return;
+            }
+            k = Math.max(0, Math.min(MAX_MATCHES, k));
+
+            Profile seeker = manager.findProfile(params.getOrDefault("username", ""));
+            if (seeker == null) {
+                sendResponse(exchange, "{\"error\": \"User not found\"}", 404);
+                return;
+            }
+
+            // mutual=true answers from the precomputed graph (when enabled) instead of scoring candidates
+            if ("true".equalsIgnoreCase(params.get("mutual")) && manager.getMatchGraph() != null) {
+                List<Profile> mutual = manager.getMutualMatches(seeker);
+                sendProfiles(exchange, mutual.subList(0, Math.min(k, mutual.size())));
+                return;
+            }
+
+            List<MatchEngine.Match> matches = manager.findTopMatches(seeker, k);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                ProfileJsonWriter writer = new ProfileJsonWriter(os);
+                writer.beginArray();
+                for (MatchEngine.Match match : matches) {
+                    writer.writeMatch(match.getProfile(), match.getScore());
+                }
+                writer.endArray();
+                writer.flush();
+            }
+        }
+    }
+
+    // GET /api/interests: the interests a profile can choose, encoded once
     class InterestHandler implements HttpHandler {
+        private final CachedResponse response;
+
+        InterestHandler() {
+            byte[] body = encodeInterests(ProfileManager.getAvailableInterests());
+            response = new CachedResponse(0, "i" + Integer.toHexString(Arrays.hashCode(body)), body);
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
 
             if ("GET".equals(exchange.getRequestMethod())) {
-                String json = "[\"Hiking\", \"Gaming\", \"Reading\", \"Cooking\", \"Fitness\"]";
-                sendResponse(exchange, json, 200);
+                response.send(exchange, "application/json; charset=utf-8", INTERESTS_CACHE_CONTROL);
+            } else {
+                sendResponse(exchange, "Method not allowed", 405);
+            }
+        }
+    }
+
+    private static byte[] encodeInterests(List<Interest> interests) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ProfileJsonWriter writer = new ProfileJsonWriter(out, 256);
+            writer.beginArray();
+            for (int i = 0; i < interests.size(); i++) {
+                if (i > 0) writer.writeRaw(ascii(","));
+                writer.writeString(interests.get(i).getName());
             }
+            writer.endArray();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return out.toByteArray();
+    }
+
+    // Full GET /api/profiles. The ETag is the data version, so an unchanged list is answered with an empty 304
+    // before anything is read, and a changed one is encoded once for every client asking for that version.
+    private void sendProfileListing(HttpExchange exchange) throws IOException {
+        // Both read before the listing, so the listing holds at least what they claim: a stream resumed from the
+        // event id may repeat a change but never miss one, and a stale ETag only costs a full response
+        exchange.getResponseHeaders().set("X-Last-Event-Id", manager.getChangeFeed().getLastEventId());
+        long version = manager.getDataVersion();
+        String etag = CachedResponse.etag(instanceTag + "-" + version);
+        if (CachedResponse.notModified(exchange, etag)) {
+            CachedResponse.sendNotModified(exchange, etag, LISTING_CACHE_CONTROL);
+            return;
+        }
+
+        CachedResponse cached = listingCache;
+        if (cached == null || cached.getVersion() != version) {
+            List<Profile> profiles = manager.getAllProfiles();
+            if (profiles.size() > MAX_CACHED_LISTING) {
+                CachedResponse.setValidators(exchange.getResponseHeaders(), etag, LISTING_CACHE_CONTROL);
+                sendProfiles(exchange, profiles);
+                return;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(profiles.size() * 64 + 2);
+            writeProfiles(out, profiles);
+            cached = new CachedResponse(version, instanceTag + "-" + version, out.toByteArray());
+            listingCache = cached;
+        }
+        cached.send(exchange, "application/json; charset=utf-8", LISTING_CACHE_CONTROL);
+    }
+
+    // GET /api/profiles?sort=username|age&interest=&minAge=&maxAge=&limit=&cursor=
+    private ProfileQuery parseProfileQuery(Map<String, String> params) {
+        ProfileQuery query = new ProfileQuery();
+        String sort = params.get("sort");
+        if (sort != null) {
+            if (sort.equalsIgnoreCase("age")) query.setSort(ProfileQuery.Sort.AGE);
+            else if (!sort.equalsIgnoreCase("username")) throw new IllegalArgumentException("sort must be username or age");
+        }
+        if (params.containsKey("interest")) query.setInterest(params.get("interest"));
+        if (params.containsKey("minAge")) query.setMinAge(parseIntParam(params, "minAge"));
+        if (params.containsKey("maxAge")) query.setMaxAge(parseIntParam(params, "maxAge"));
+        if (params.containsKey("limit")) {
+            query.setLimit(Math.max(1, Math.min(MAX_PAGE_SIZE, parseIntParam(params, "limit"))));
+        }
+        // The cursor encodes a position in the chosen sort order, so it is read after sort
+        if (params.containsKey("cursor")) query.setCursor(params.get("cursor"));
+        return query;
+    }
+
+    private int parseIntParam(Map<String, String> params, String name) {
+        try {
+            return Integer.parseInt(params.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
+
+    private Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        for (String param : rawQuery.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // A limited page is collected first so the next cursor can go in a header; unlimited results stream directly
+    private void sendProfilePage(HttpExchange exchange, ProfileQuery query) throws IOException {
+        Iterator<Profile> results = manager.queryProfiles(query);
+        if (query.getLimit() == Integer.MAX_VALUE) {
+            sendProfiles(exchange, () -> results);
+            return;
+        }
+
+        List<Profile> page = new ArrayList<>(Math.min(query.getLimit(), MAX_PAGE_SIZE));
+        while (page.size() < query.getLimit() && results.hasNext()) {
+            page.add(results.next());
+        }
+        if (results.hasNext()) {
+            exchange.getResponseHeaders().set("X-Next-Cursor", query.cursorAfter(page.get(page.size() - 1)));
+        }
+        sendProfiles(exchange, page);
+    }
+
+    // Streams the listing with chunked transfer encoding, so memory use does not grow with the profile count
+    private void sendProfiles(HttpExchange exchange, Iterable<Profile> profiles) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            writeProfiles(os, profiles);
+        }
+    }
+
+    private static void writeProfiles(OutputStream os, Iterable<Profile> profiles) throws IOException {
+        ProfileJsonWriter writer = new ProfileJsonWriter(os);
+        writer.beginArray();
+        for (Profile p : profiles) {
+            writer.writeProfile(p);
+        }
+        writer.endArray();
+        writer.flush();
     }
 
     private void sendResponse(HttpExchange exchange, String response, int statusCode) throws IOException {
@@ -182,21 +823,4 @@ public class ProfileServer {
         os.write(bytes);
         os.close();
     }
-
-    private String extractValue(String json, String key) {
-        String search = "\"" + key + "\":";
-        int start = json.indexOf(search);
-        if (start == -1) return "";
-        start += search.length();
-
-        if (json.charAt(start) == '"') {
-            start++;
-            int end = json.indexOf("\"", start);
-            return json.substring(start, end);
-        } else {
-            int end = json.indexOf(",", start);
-            if (end == -1) end = json.indexOf("}", start);
-            return json.substring(start, end).trim();
-        }
-    }
-}
\ No newline at end of file
+}
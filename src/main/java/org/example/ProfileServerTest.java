@@ -0,0 +1,189 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileServerTest {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private ProfileServer server;
+    private String base;
+
+    private ProfileManager start() throws Exception {
+        TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new ProfileServer(manager, ProfileServer.ExecutorMode.FIXED, port);
+        server.start();
+        base = "http://localhost:" + port;
+        return manager;
+    }
+
+    @AfterEach
+    void stop() {
+        if (server != null) server.stop();
+    }
+
+    private HttpResponse<byte[]> get(String path, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path)).GET();
+        for (int i = 0; i < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testBulkImportReportsErrorsInLineOrder() throws Exception {
+        ProfileManager manager = start();
+        manager.addProfile(new Profile("alice", 30, Interest.of("Hiking"), new ArrayList<>()));
+
+        HttpResponse<String> response = post("/api/profiles/bulk",
+                "{\"username\":\"alice\",\"age\":31,\"interest\":\"Hiking\"}\n"
+                        + "{\"username\":\"carol\",\"age\":200,\"interest\":\"Hiking\"}\n"
+                        + "{\"username\":\"bob\",\"age\":40,\"interest\":\"gaming\"}\n"
+                        + "{\"username\":\"dave\",\"age\":50,\"interest\":\"Knitting\"}\n"
+                        + "{\"username\":\"alice\",\"age\":32,\"interest\":\"Hiking\"}\n");
+
+        assertEquals(200, response.statusCode());
+        String body = response.body();
+        assertTrue(body.startsWith("{\"imported\":1,\"failed\":4,"), body);
+        int line1 = body.indexOf("{\"line\":1,");
+        int line2 = body.indexOf("{\"line\":2,");
+        int line4 = body.indexOf("{\"line\":4,");
+        int line5 = body.indexOf("{\"line\":5,");
+        assertTrue(line1 >= 0 && line1 < line2 && line2 < line4 && line4 < line5, body);
+        assertSame(Interest.of("Gaming"), manager.findProfile("bob").getPrimaryInterest());
+    }
+
+    @Test
+    void testUnknownInterestIsRejectedWithoutRegistering() throws Exception {
+        ProfileManager manager = start();
+
+        HttpResponse<String> response = post("/api/profiles",
+                "{\"username\":\"erin\",\"age\":30,\"interest\":\"Underwater Basket Weaving\"}");
+
+        assertEquals(400, response.statusCode());
+        assertNull(manager.findProfile("erin"));
+        assertNull(Interest.lookup("Underwater Basket Weaving"));
+    }
+
+    @Test
+    void testListingRevalidatesWithETag() throws Exception {
+        ProfileManager manager = start();
+        for (int i = 0; i < 50; i++) {
+            manager.addProfile(new Profile("user" + i, 30, Interest.of("Hiking"), new ArrayList<>()));
+        }
+
+        HttpResponse<byte[]> first = get("/api/profiles");
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertTrue(etag.startsWith("W/\""), etag);
+        assertEquals("no-cache", first.headers().firstValue("Cache-Control").orElseThrow());
+
+        HttpResponse<byte[]> unchanged = get("/api/profiles", "If-None-Match", etag.substring(2));
+        assertEquals(304, unchanged.statusCode());
+        assertEquals(0, unchanged.body().length);
+        assertEquals(etag, unchanged.headers().firstValue("ETag").orElseThrow());
+
+        manager.addProfile(new Profile("late", 30, Interest.of("Hiking"), new ArrayList<>()));
+        HttpResponse<byte[]> changed = get("/api/profiles", "If-None-Match", etag);
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void testListingIsGzippedOnlyWhenAccepted() throws Exception {
+        ProfileManager manager = start();
+        for (int i = 0; i < 50; i++) {
+            manager.addProfile(new Profile("user" + i, 30, Interest.of("Hiking"), new ArrayList<>()));
+        }
+
+        HttpResponse<byte[]> plain = get("/api/profiles");
+        HttpResponse<byte[]> refused = get("/api/profiles", "Accept-Encoding", "gzip;q=0, identity");
+        HttpResponse<byte[]> gzipped = get("/api/profiles", "Accept-Encoding", "deflate, gzip");
+
+        assertTrue(plain.headers().firstValue("Content-Encoding").isEmpty());
+        assertTrue(refused.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElseThrow());
+        assertEquals(plain.headers().firstValue("ETag"), gzipped.headers().firstValue("ETag"));
+        try (GZIPInputStream in =
+                     new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))) {
+            assertArrayEquals(plain.body(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testInterestsAnswerNotModified() throws Exception {
+        start();
+        HttpResponse<byte[]> first = get("/api/interests");
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertEquals("public, max-age=3600", first.headers().firstValue("Cache-Control").orElseThrow());
+
+        assertEquals(304, get("/api/interests", "If-None-Match", "\"other\", " + etag).statusCode());
+        assertEquals(304, get("/api/interests", "If-None-Match", "*").statusCode());
+        assertEquals(200, get("/api/interests", "If-None-Match", "\"other\"").statusCode());
+    }
+
+    @Test
+    void testPreferencesOutsideAgeRangeAreRejected() throws Exception {
+        ProfileManager manager = start();
+
+        assertEquals(400, post("/api/profiles", "{\"username\":\"erin\",\"age\":30,\"interest\":\"Hiking\","
+                + "\"preferences\":[{\"minAge\":20,\"maxAge\":100000}]}").statusCode());
+        assertEquals(400, post("/api/profiles", "{\"username\":\"erin\",\"age\":30,\"interest\":\"Hiking\","
+                + "\"preferences\":[{\"minAge\":40,\"maxAge\":20}]}").statusCode());
+        assertNull(manager.findProfile("erin"));
+
+        HttpResponse<String> response = post("/api/profiles/bulk",
+                "{\"username\":\"ann\",\"age\":30,\"interest\":\"Hiking\",\"preferences\":[{\"minAge\":-1,\"maxAge\":30}]}\n"
+                        + "{\"username\":\"ben\",\"age\":30,\"interest\":\"Hiking\",\"preferences\":[{\"minAge\":25,\"maxAge\":35}]}\n"
+                        + "{\"username\":\"cat\",\"age\":30,\"interest\":\"Hiking\",\"preferences\":[{\"minAge\":35,\"maxAge\":25}]}\n");
+        String body = response.body();
+        assertTrue(body.startsWith("{\"imported\":1,\"failed\":2,"), body);
+        assertTrue(body.contains("{\"line\":1,") && body.contains("{\"line\":3,"), body);
+        assertNotNull(manager.findProfile("ben"));
+        assertNull(manager.findProfile("ann"));
+        assertNull(manager.findProfile("cat"));
+    }
+
+    @Test
+    void testMetricsUsePrometheusTextFormat() throws Exception {
+        start();
+        get("/api/interests");
+
+        HttpResponse<byte[]> response = get("/api/metrics");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("text/plain; version=0.0.4"));
+        String text = new String(response.body(), StandardCharsets.UTF_8);
+        assertTrue(text.contains("# TYPE http_request_duration_seconds summary\n"), text);
+        assertTrue(text.contains("http_request_duration_seconds{route=\"/api/interests\",method=\"GET\",quantile=\"0.99\"} "),
+                text);
+        assertTrue(text.contains("http_request_duration_seconds_count{route=\"/api/interests\",method=\"GET\"} "), text);
+        assertTrue(text.contains("# TYPE http_responses_total counter\n"), text);
+        assertTrue(text.contains("http_responses_total{route=\"/api/interests\",code=\"200\"} "), text);
+        // Every line is a comment or "name{labels} value"
+        for (String line : text.split("\n")) {
+            assertTrue(line.startsWith("# HELP ") || line.startsWith("# TYPE ")
+                    || line.matches("[a-zA-Z_:][a-zA-Z0-9_:]*(\\{.*\\})? -?[0-9.eE+-]+|.* NaN"), line);
+        }
+    }
+}
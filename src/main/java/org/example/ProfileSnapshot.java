@@ -0,0 +1,81 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+
+// Binary image of all profiles on local disk, written through a memory-mapped file. Tagged with the database
+// change number it matches, so a restart can serve it straight away and only reload from the database
+// when the number moved on.
+public class ProfileSnapshot {
+    private static final int MAGIC = 0x50534E50; // "PSNP"
+    // 2: rows without an interest are stored with a sentinel ordinal
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+
+    private final long changeNumber;
+    private final ColumnarProfileStore store;
+
+    private ProfileSnapshot(long changeNumber, ColumnarProfileStore store) {
+        this.changeNumber = changeNumber;
+        this.store = store;
+    }
+
+    public long getChangeNumber() { return changeNumber; }
+    public ColumnarProfileStore getStore() { return store; }
+
+    // Written to a temporary file and moved into place, so a crash never leaves a half-written snapshot
+    public static void write(Path file, Collection<Profile> profiles, long changeNumber) throws IOException {
+        ColumnarProfileStore store = ColumnarProfileStore.from(profiles);
+        long size = HEADER_BYTES + store.serializedSize();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            buffer.putLong(changeNumber);
+            store.writeTo(buffer);
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Null when there is no usable snapshot
+    public static ProfileSnapshot read(Path file) {
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                System.err.println("[Snapshot] Ignoring " + file + ": unknown format.");
+                return null;
+            }
+            long changeNumber = buffer.getLong();
+            return new ProfileSnapshot(changeNumber, ColumnarProfileStore.readFrom(buffer));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[Snapshot] Could not read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Current database change number, or -1 if the database does not track one (profile_state table missing).
+    // Throws if no connection can be made, so an outage is not mistaken for a database without tracking.
+    public static long readChangeNumber() throws SQLException {
+        try (Connection conn = Database.connect()) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT change_number FROM profile_state WHERE id = 1")) {
+                return rs.next() ? rs.getLong(1) : -1;
+            } catch (SQLException e) {
+                return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = Database.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    @Test
+    void testRoundTripKeepsRowsWithoutInterest() throws Exception {
+        List<MatchPreference> prefs = new ArrayList<>();
+        prefs.add(new MatchPreference(20, 30));
+        List<Profile> profiles = List.of(
+                new Profile("alice", 25, Interest.of("Hiking"), prefs),
+                new Profile("bob", 40, Interest.of(null), new ArrayList<>()),
+                new Profile("carol", 33, null, new ArrayList<>()));
+        Path file = dir.resolve("profiles.snapshot");
+
+        ProfileSnapshot.write(file, profiles, 7);
+        ProfileSnapshot snap = ProfileSnapshot.read(file);
+
+        assertNotNull(snap);
+        assertEquals(7, snap.getChangeNumber());
+        ColumnarProfileStore store = snap.getStore();
+        assertEquals(3, store.size());
+        assertEquals("Hiking", store.getInterest(0).getName());
+        assertEquals(30, store.getPreferences(0).get(0).getMaxAge());
+        assertEquals("bob", store.getUsername(1));
+        assertNull(store.getInterest(1).getName());
+        assertNull(store.getInterest(2).getName());
+    }
+
+    @Test
+    void testCorruptFileIsIgnored() throws Exception {
+        Path file = dir.resolve("profiles.snapshot");
+        Files.write(file, new byte[]{1, 2, 3});
+        assertNull(ProfileSnapshot.read(file));
+    }
+
+    @Test
+    void testChangeNumberWithAndWithoutTracking() throws Exception {
+        TestDatabase.create(false);
+        assertEquals(-1, ProfileSnapshot.readChangeNumber());
+
+        TestDatabase.create(true);
+        execute("UPDATE profile_state SET change_number = 12 WHERE id = 1");
+        assertEquals(12, ProfileSnapshot.readChangeNumber());
+    }
+
+    @Test
+    void testChangeNumberThrowsWhenDatabaseIsUnreachable() throws Exception {
+        String url = TestDatabase.create(true);
+        Database.setUrl(TestDatabase.UNREACHABLE_URL);
+        try {
+            assertThrows(SQLException.class, ProfileSnapshot::readChangeNumber);
+        } finally {
+            Database.setUrl(url);
+        }
+    }
+
+    @Test
+    void testStaleSnapshotIsReloadedFromDatabase() throws Exception {
+        TestDatabase.create(true);
+        execute("INSERT INTO profiles VALUES ('alice', 30, 'Hiking')");
+        execute("UPDATE profile_state SET change_number = 5 WHERE id = 1");
+        ProfileManager manager = new ProfileManager();
+        manager.register(new Profile("stale", 50, Interest.of("Gaming"), new ArrayList<>()));
+
+        manager.checkSnapshot(5);
+        assertNotNull(manager.findProfile("stale"));
+
+        manager.checkSnapshot(3);
+        assertNull(manager.findProfile("stale"));
+        assertEquals(30, manager.findProfile("alice").getAge());
+    }
+
+    @Test
+    void testSnapshotIsServedWhileDatabaseIsUnreachable() throws Exception {
+        String url = TestDatabase.create(true);
+        ProfileManager manager = new ProfileManager();
+        manager.register(new Profile("cached", 50, Interest.of("Gaming"), new ArrayList<>()));
+
+        Database.setUrl(TestDatabase.UNREACHABLE_URL);
+        try {
+            manager.checkSnapshot(3);
+        } finally {
+            Database.setUrl(url);
+        }
+        assertNotNull(manager.findProfile("cached"));
+    }
+}
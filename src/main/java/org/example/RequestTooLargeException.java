@@ -0,0 +1,8 @@
+package org.example;
+
+public class RequestTooLargeException extends MalformedRequestException {
+
+    public RequestTooLargeException(int maxBytes) {
+        super("Request body exceeds " + maxBytes + " bytes.");
+    }
+}
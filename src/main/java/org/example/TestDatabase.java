@@ -0,0 +1,40 @@
+package org.example;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Points Database at a fresh in-memory H2 database in PostgreSQL mode with the README schema, for the tests
+class TestDatabase {
+    // Never resolves to a driver, so every connection attempt fails the way an unreachable server does
+    static final String UNREACHABLE_URL = "jdbc:unreachable:test";
+
+    private static int counter;
+
+    static synchronized String create(boolean changeTracking) throws SQLException {
+        String url = "jdbc:h2:mem:test" + (++counter) + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        Database.setUrl(url);
+        try (Connection conn = Database.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE profiles (username VARCHAR(50) PRIMARY KEY, age INT, primary_interest VARCHAR(50))");
+            stmt.execute("CREATE TABLE match_preferences (id SERIAL PRIMARY KEY, "
+                    + "profile_username VARCHAR(50) REFERENCES profiles(username) ON DELETE CASCADE, "
+                    + "min_age INT, max_age INT)");
+            if (changeTracking) {
+                stmt.execute("CREATE TABLE profile_state (id INT PRIMARY KEY, change_number BIGINT NOT NULL)");
+                stmt.execute("INSERT INTO profile_state VALUES (1, 0)");
+            }
+        }
+        return url;
+    }
+
+    static int count(String sql) throws SQLException {
+        try (Connection conn = Database.connect();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
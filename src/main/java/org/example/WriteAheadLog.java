@@ -0,0 +1,266 @@
+package org.example;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only log of profile changes, so a change is durable on local disk before the database has it.
+// Records go to numbered segment files. ProfileManager starts a new segment whenever it drains the change log
+// for a save and deletes the older segments once that save has committed.
+//
+// Group commit: appends only write to the file. sync() forces it to disk, and callers arriving while a force
+// is running wait for it and are then covered together by the next single force.
+public class WriteAheadLog {
+    public enum Type { UPSERT, DELETE, RENAME }
+
+    public static class Record {
+        private final Type type;
+        private final String username;
+        private final Profile profile;
+
+        private Record(Type type, String username, Profile profile) {
+            this.type = type;
+            this.username = username;
+            this.profile = profile;
+        }
+
+        public Type getType() { return type; }
+        // Deleted username, or the old username of a rename
+        public String getUsername() { return username; }
+        // Profile state after an upsert or rename
+        public Profile getProfile() { return profile; }
+    }
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    // length + crc32 in front of every payload
+    private static final int HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    // Guarded by writeLock
+    private FileChannel channel;
+    private long segment;
+    private long written;
+    // Everything up to this position (bytes appended since open) has been forced to disk
+    private volatile long durable;
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+
+    public WriteAheadLog(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        List<Long> existing = segments();
+        // Never append to a segment from an earlier run; its tail may be torn
+        segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        channel = open(segment);
+    }
+
+    private FileChannel open(long number) throws IOException {
+        return FileChannel.open(segmentFile(number), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentFile(long number) {
+        return dir.resolve(String.format("%s%016d%s", PREFIX, number, SUFFIX));
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(f -> f.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    public long appendUpsert(Profile p) throws IOException {
+        return append(encode(Type.UPSERT, p.getUsername(), p.getUsername(), p));
+    }
+
+    public long appendDelete(String username) throws IOException {
+        return append(encode(Type.DELETE, username, null, null));
+    }
+
+    // Logged before the profile is renamed, so the new username is passed separately
+    public long appendRename(String oldUsername, String newUsername, Profile p) throws IOException {
+        return append(encode(Type.RENAME, oldUsername, newUsername, p));
+    }
+
+    // Writes the record without forcing it; returns the position to pass to sync()
+    private long append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+        writeLock.lock();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            written += HEADER_BYTES + payload.length;
+            records.increment();
+            return written;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Returns once everything up to position is on disk
+    public void sync(long position) throws IOException {
+        if (durable >= position) return;
+        syncLock.lock();
+        try {
+            if (durable >= position) return;
+            long target;
+            FileChannel current;
+            writeLock.lock();
+            try {
+                target = written;
+                current = channel;
+            } finally {
+                writeLock.unlock();
+            }
+            // Appends continue while this runs; they are picked up by the next force
+            current.force(false);
+            durable = target;
+            syncs.increment();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Closes the current segment and starts the next one; returns the number of the closed segment
+    public long rotate() throws IOException {
+        syncLock.lock();
+        writeLock.lock();
+        try {
+            channel.force(false);
+            durable = written;
+            channel.close();
+            long closed = segment++;
+            channel = open(segment);
+            return closed;
+        } finally {
+            writeLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    // Drops segments whose changes are in the database
+    public void deleteUpTo(long lastSegment) throws IOException {
+        for (long number : segments()) {
+            if (number <= lastSegment) Files.deleteIfExists(segmentFile(number));
+        }
+    }
+
+    // Feeds every record of earlier runs to the consumer, oldest first. Stops at the first torn or corrupt
+    // record of a segment, which can only be an append that never finished.
+    public int replay(Consumer<Record> consumer) throws IOException {
+        int count = 0;
+        for (long number : segments()) {
+            if (number >= segment) break;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(segmentFile(number))))) {
+                while (true) {
+                    Record record = readRecord(in);
+                    if (record == null) break;
+                    consumer.accept(record);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Record readRecord(DataInputStream in) throws IOException {
+        byte[] payload;
+        int checksum;
+        try {
+            int length = in.readInt();
+            checksum = in.readInt();
+            if (length < 0 || length > 1 << 20) return null;
+            payload = new byte[length];
+            in.readFully(payload);
+        } catch (EOFException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) return null;
+        return decode(payload);
+    }
+
+    private static byte[] encode(Type type, String username, String profileName, Profile p) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type.ordinal());
+        out.writeUTF(username);
+        if (p != null) {
+            out.writeUTF(profileName);
+            out.writeInt(p.getAge());
+            // Presence flag first, since rows loaded with a NULL primary_interest have no interest name
+            Interest interest = p.getPrimaryInterest();
+            boolean hasInterest = interest != null && interest.getName() != null;
+            out.writeBoolean(hasInterest);
+            if (hasInterest) out.writeUTF(interest.getName());
+            List<MatchPreference> prefs = p.getPreferences();
+            out.writeShort(prefs.size());
+            for (MatchPreference pref : prefs) {
+                out.writeInt(pref.getMinAge());
+                out.writeInt(pref.getMaxAge());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Record decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Type type = Type.values()[in.readByte()];
+        String username = in.readUTF();
+        Profile p = null;
+        if (type != Type.DELETE) {
+            String name = in.readUTF();
+            int age = in.readInt();
+            Interest interest = Interest.of(in.readBoolean() ? in.readUTF() : null);
+            int count = in.readShort();
+            List<MatchPreference> prefs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                prefs.add(new MatchPreference(in.readInt(), in.readInt()));
+            }
+            p = new Profile(name, age, interest, prefs);
+        }
+        return new Record(type, username, p);
+    }
+
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        long recordCount = records.sum();
+        long syncCount = syncs.sum();
+        return String.format("WAL %s: segment %d, %d records, %d fsyncs (%.1f records per fsync)",
+                dir, segment, recordCount, syncCount, syncCount > 0 ? (double) recordCount / syncCount : 0.0);
+    }
+}
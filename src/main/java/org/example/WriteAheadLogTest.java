@@ -0,0 +1,157 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static Profile profile(String username, int age) {
+        return new Profile(username, age, Interest.of("Hiking"), new ArrayList<>());
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private List<WriteAheadLog.Record> replay() throws IOException {
+        List<WriteAheadLog.Record> records = new ArrayList<>();
+        WriteAheadLog log = new WriteAheadLog(dir);
+        log.replay(records::add);
+        log.close();
+        return records;
+    }
+
+    @Test
+    void testReplaysRecordsOfEarlierRun() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(dir);
+        Profile alice = profile("alice", 30);
+        alice.getPreferences().add(new MatchPreference(25, 35));
+        log.sync(log.appendUpsert(alice));
+        log.appendUpsert(new Profile("nointerest", 40, Interest.of(null), new ArrayList<>()));
+        log.appendRename("alice", "alicia", alice);
+        log.sync(log.appendDelete("bob"));
+        log.close();
+
+        List<WriteAheadLog.Record> records = replay();
+
+        assertEquals(4, records.size());
+        assertEquals(WriteAheadLog.Type.UPSERT, records.get(0).getType());
+        assertEquals(35, records.get(0).getProfile().getPreferences().get(0).getMaxAge());
+        assertNull(records.get(1).getProfile().getPrimaryInterest().getName());
+        assertEquals("alice", records.get(2).getUsername());
+        assertEquals("alicia", records.get(2).getProfile().getUsername());
+        assertEquals(WriteAheadLog.Type.DELETE, records.get(3).getType());
+        assertEquals("bob", records.get(3).getUsername());
+    }
+
+    @Test
+    void testStopsAtTornRecord() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(dir);
+        log.sync(log.appendUpsert(profile("alice", 30)));
+        log.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            Path segment = files.findFirst().orElseThrow();
+            // Length and checksum of a record whose payload never made it to disk
+            Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        }
+
+        assertEquals(1, replay().size());
+    }
+
+    @Test
+    void testDeletesSegmentsUpToRotation() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(dir);
+        log.appendUpsert(profile("alice", 30));
+        long saved = log.rotate();
+        log.appendUpsert(profile("bob", 40));
+
+        log.deleteUpTo(saved);
+        log.close();
+
+        assertEquals(1, segmentCount());
+        List<WriteAheadLog.Record> records = replay();
+        assertEquals(1, records.size());
+        assertEquals("bob", records.get(0).getProfile().getUsername());
+    }
+
+    @Test
+    void testUnsavedChangesAreReplayedIntoManager() throws Exception {
+        TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        manager.openWriteAheadLog(dir);
+        manager.addProfile(new Profile("alice", 30, Interest.of(null), new ArrayList<>()));
+        manager.addProfile(profile("bob", 40));
+        manager.renameProfile("alice", "alicia");
+        manager.deleteProfile("bob");
+        manager.getWriteAheadLog().close();
+
+        ProfileManager restarted = new ProfileManager();
+        restarted.openWriteAheadLog(dir);
+
+        assertNull(restarted.findProfile("alice"));
+        assertNull(restarted.findProfile("bob"));
+        assertEquals(30, restarted.findProfile("alicia").getAge());
+        restarted.saveState();
+        assertEquals(1, TestDatabase.count("SELECT COUNT(*) FROM profiles WHERE username = 'alicia'"));
+        restarted.getWriteAheadLog().close();
+    }
+
+    @Test
+    void testSegmentsAreKeptUntilSaveCommits() throws Exception {
+        String url = TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        manager.openWriteAheadLog(dir);
+        manager.addProfile(profile("alice", 30));
+
+        Database.setUrl(TestDatabase.UNREACHABLE_URL);
+        try {
+            manager.saveState();
+        } finally {
+            Database.setUrl(url);
+        }
+        assertEquals(1, replay().size(), "failed save keeps the record");
+
+        manager.addProfile(profile("bob", 40));
+        manager.saveState();
+        manager.getWriteAheadLog().close();
+
+        assertEquals(2, TestDatabase.count("SELECT COUNT(*) FROM profiles"));
+        assertTrue(replay().isEmpty());
+    }
+
+    @Test
+    void testImportLogsProfilesWhenDatabaseWriteFails() throws Exception {
+        String url = TestDatabase.create(false);
+        ProfileManager manager = new ProfileManager();
+        manager.openWriteAheadLog(dir);
+
+        Database.setUrl(TestDatabase.UNREACHABLE_URL);
+        String[] errors;
+        try {
+            errors = manager.importProfiles(List.of(profile("alice", 30), profile("bob", 40)));
+        } finally {
+            Database.setUrl(url);
+        }
+        manager.getWriteAheadLog().close();
+
+        assertArrayEquals(new String[2], errors);
+        ProfileManager restarted = new ProfileManager();
+        restarted.openWriteAheadLog(dir);
+        assertNotNull(restarted.findProfile("alice"));
+        assertNotNull(restarted.findProfile("bob"));
+        restarted.getWriteAheadLog().close();
+    }
+}